@@ -0,0 +1,230 @@
+package com.github.vincentrussell.ini.benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Generated ini files for the benchmarks.  A corpus is described by its size and its {@link Shape}; the same
+ * description always produces the same file, which is written once to
+ * <code>${java.io.tmpdir}/java-ini-parser-benchmarks</code> and reused by later runs.
+ */
+public final class Corpus {
+
+    /**
+     * the mix of sections, keys and values of a corpus.
+     */
+    public enum Shape {
+        /** few large sections of plain values */
+        FLAT(2000, 0, 0, 0),
+        /** many small sections of plain values */
+        SECTIONED(8, 0, 0, 0),
+        /** a third of the values refer to other keys of their section with <code>${}</code> */
+        REFERENCES(50, 0.33, 0, 0),
+        /** a fifth of the values continue over several lines */
+        MULTILINE(50, 0, 0.2, 0),
+        /** a third of the values have quotes, escape sequences or escaped comment characters */
+        ESCAPES(50, 0, 0, 0.33),
+        /** a bit of everything */
+        MIXED(50, 0.1, 0.05, 0.1);
+
+        private final int keysPerSection;
+        private final double referenceShare;
+        private final double multilineShare;
+        private final double escapeShare;
+
+        Shape(final int keysPerSection, final double referenceShare, final double multilineShare,
+              final double escapeShare) {
+            this.keysPerSection = keysPerSection;
+            this.referenceShare = referenceShare;
+            this.multilineShare = multilineShare;
+            this.escapeShare = escapeShare;
+        }
+    }
+
+    private static final int SAMPLE_SIZE = 1 << 14;
+    private static final String[] WORDS = {"alpha", "bravo", "charlie", "delta", "echo", "foxtrot", "golf",
+            "hotel", "india", "juliet", "kilo", "lima", "mike", "november", "oscar", "papa"};
+
+    private final Path path;
+    private final List<String> sections = new ArrayList<>();
+    private final List<String> keys = new ArrayList<>();
+    private final Random sampler = new Random(7);
+    private long keyCount;
+
+    private Corpus(final Path path) {
+        this.path = path;
+    }
+
+    /**
+     * get a corpus, generating its file if it does not exist yet.
+     * @param size the approximate size of the file, such as <code>1KB</code>, <code>64MB</code> or
+     *             <code>500MB</code>
+     * @param shape the mix of sections, keys and values
+     * @return the corpus
+     * @throws IOException if the file cannot be written
+     */
+    public static Corpus get(final String size, final Shape shape) throws IOException {
+        final Path directory = Paths.get(System.getProperty("java.io.tmpdir"), "java-ini-parser-benchmarks");
+        Files.createDirectories(directory);
+        final Corpus corpus = new Corpus(directory.resolve(shape.name().toLowerCase(Locale.ROOT) + "-"
+                + size.toLowerCase(Locale.ROOT) + ".ini"));
+        final boolean exists = Files.isRegularFile(corpus.path);
+        final Path target = exists ? null : Files.createTempFile(directory, "corpus", ".tmp");
+        try (Writer writer = exists ? new NullWriter()
+                : new BufferedWriter(Files.newBufferedWriter(target, StandardCharsets.UTF_8), 1 << 16)) {
+            corpus.generate(writer, parseSize(size), shape);
+        }
+        if (!exists) {
+            Files.move(target, corpus.path, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return corpus;
+    }
+
+    /**
+     * @return the ini file
+     */
+    public Path path() {
+        return path;
+    }
+
+    /**
+     * @return the contents of the ini file
+     * @throws IOException if the file cannot be read
+     */
+    public String text() throws IOException {
+        return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return the sections of the keys of {@link #keys()}, in the same order
+     */
+    public List<String> sections() {
+        return sections;
+    }
+
+    /**
+     * @return a random sample of up to 16384 keys of the corpus, in the order of {@link #sections()}
+     */
+    public List<String> keys() {
+        return keys;
+    }
+
+    private void generate(final Writer writer, final long size, final Shape shape) throws IOException {
+        final Random random = new Random(size * 31 + shape.ordinal());
+        final StringBuilder line = new StringBuilder(256);
+        long written = 0;
+        for (int section = 0; written < size; section++) {
+            final String name = "section" + section;
+            line.setLength(0);
+            line.append('[').append(name).append("]\n");
+            for (int key = 0; key < shape.keysPerSection && written + line.length() < size; key++) {
+                final String keyName = "key" + key;
+                sample(name, keyName);
+                line.append(keyName).append(" = ");
+                appendValue(line, random, shape, key);
+                line.append('\n');
+            }
+            line.append('\n');
+            writer.append(line);
+            written += line.length();
+        }
+    }
+
+    private void sample(final String section, final String key) {
+        keyCount++;
+        if (keys.size() < SAMPLE_SIZE) {
+            sections.add(section);
+            keys.add(key);
+            return;
+        }
+        final long slot = (long) (sampler.nextDouble() * keyCount);
+        if (slot < SAMPLE_SIZE) {
+            sections.set((int) slot, section);
+            keys.set((int) slot, key);
+        }
+    }
+
+    private static void appendValue(final StringBuilder line, final Random random, final Shape shape,
+                                    final int key) {
+        final double kind = random.nextDouble();
+        if (key > 0 && kind < shape.referenceShare) {
+            line.append(WORDS[random.nextInt(WORDS.length)]).append(" ${key").append(random.nextInt(key))
+                    .append('}');
+        } else if (kind < shape.referenceShare + shape.multilineShare) {
+            line.append(WORDS[random.nextInt(WORDS.length)]).append(" \\\n    ")
+                    .append(WORDS[random.nextInt(WORDS.length)]).append(" \\\n    ")
+                    .append(WORDS[random.nextInt(WORDS.length)]);
+        } else if (kind < shape.referenceShare + shape.multilineShare + shape.escapeShare) {
+            line.append("\"").append(WORDS[random.nextInt(WORDS.length)]).append("\\t\\\"quoted\\\" \\#")
+                    .append(random.nextInt(1000)).append("\\;\\n").append(WORDS[random.nextInt(WORDS.length)])
+                    .append("\"");
+        } else if (kind < 0.75) {
+            line.append(random.nextInt(100000));
+        } else if (kind < 0.85) {
+            line.append(random.nextInt(1000)).append('.').append(random.nextInt(100));
+        } else {
+            line.append(WORDS[random.nextInt(WORDS.length)]).append(' ')
+                    .append(WORDS[random.nextInt(WORDS.length)]);
+        }
+    }
+
+    /**
+     * @param size a size such as <code>1KB</code>, <code>64MB</code> or <code>1GB</code>
+     * @return the size in bytes
+     */
+    static long parseSize(final String size) {
+        final String upper = size.trim().toUpperCase(Locale.ROOT);
+        final long unit;
+        if (upper.endsWith("GB")) {
+            unit = 1L << 30;
+        } else if (upper.endsWith("MB")) {
+            unit = 1L << 20;
+        } else if (upper.endsWith("KB")) {
+            unit = 1L << 10;
+        } else {
+            return Long.parseLong(upper.endsWith("B") ? upper.substring(0, upper.length() - 1) : upper);
+        }
+        return Long.parseLong(upper.substring(0, upper.length() - 2).trim()) * unit;
+    }
+
+    /**
+     * a writer that discards everything, used to rebuild the key sample of an existing corpus and as the target of
+     * the store benchmarks.
+     */
+    static final class NullWriter extends Writer {
+        @Override
+        public void write(final char[] buffer, final int offset, final int length) {
+            // discarded
+        }
+
+        @Override
+        public void write(final String string, final int offset, final int length) {
+            // discarded
+        }
+
+        @Override
+        public Writer append(final CharSequence sequence) {
+            return this;
+        }
+
+        @Override
+        public void flush() {
+            // nothing buffered
+        }
+
+        @Override
+        public void close() {
+            // nothing to release
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.github.vincentrussell.ini.benchmarks;
+
+import com.github.vincentrussell.ini.Ini;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading values of a loaded ini, as stored and converted to a type, cycling through a sample of its keys.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class LookupBenchmark {
+
+    @Param({"1KB", "1MB", "32MB"})
+    public String size;
+
+    @Param({"FLAT", "SECTIONED", "MIXED"})
+    public Corpus.Shape shape;
+
+    private Ini ini;
+    private String[] sections;
+    private String[] keys;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        final Corpus corpus = Corpus.get(size, shape);
+        ini = new Ini();
+        ini.load(corpus.path());
+        sections = corpus.sections().toArray(new String[0]);
+        keys = corpus.keys().toArray(new String[0]);
+    }
+
+    private int nextKey() {
+        final int key = next;
+        next = key + 1 == keys.length ? 0 : key + 1;
+        return key;
+    }
+
+    @Benchmark
+    public Object getValue() {
+        final int key = nextKey();
+        return ini.getValue(sections[key], keys[key]);
+    }
+
+    @Benchmark
+    public String getValueAsString() {
+        final int key = nextKey();
+        return ini.getValue(sections[key], keys[key], String.class);
+    }
+
+    @Benchmark
+    public boolean hasKey() {
+        final int key = nextKey();
+        return ini.hasKey(sections[key], keys[key]);
+    }
+
+    @Benchmark
+    public Map<String, Object> getSection() {
+        return ini.getSection(sections[nextKey()]);
+    }
+}
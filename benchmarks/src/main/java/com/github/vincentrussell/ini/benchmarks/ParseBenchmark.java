@@ -0,0 +1,60 @@
+package com.github.vincentrussell.ini.benchmarks;
+
+import com.github.vincentrussell.ini.Ini;
+import com.github.vincentrussell.ini.ParseMode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading a file with each {@link ParseMode}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParseBenchmark {
+
+    @Param({"1KB", "64KB", "1MB", "32MB"})
+    public String size;
+
+    @Param({"FLAT", "SECTIONED", "REFERENCES", "MULTILINE", "ESCAPES"})
+    public Corpus.Shape shape;
+
+    @Param({"TOKENIZER", "REGEX", "PARALLEL"})
+    public ParseMode parseMode;
+
+    @Param({"true"})
+    public boolean lazyValueConversion;
+
+    private Path path;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        path = Corpus.get(size, shape).path();
+    }
+
+    @Benchmark
+    public Ini load() throws IOException {
+        final Ini ini = new Ini();
+        ini.setParseMode(parseMode);
+        ini.setLazyValueConversion(lazyValueConversion);
+        ini.load(path);
+        return ini;
+    }
+}
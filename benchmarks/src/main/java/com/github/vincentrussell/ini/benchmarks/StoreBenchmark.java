@@ -0,0 +1,68 @@
+package com.github.vincentrussell.ini.benchmarks;
+
+import com.github.vincentrussell.ini.Ini;
+import com.github.vincentrussell.ini.StoreOptions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing a loaded ini as text, from its sections and from the preserved text of the file with one value changed.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class StoreBenchmark {
+
+    @Param({"1KB", "1MB", "32MB"})
+    public String size;
+
+    @Param({"FLAT", "ESCAPES", "MIXED"})
+    public Corpus.Shape shape;
+
+    private Ini ini;
+    private Ini preserved;
+    private final StoreOptions sorted = new StoreOptions();
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        final Corpus corpus = Corpus.get(size, shape);
+        ini = new Ini();
+        ini.load(corpus.path());
+        preserved = new Ini();
+        preserved.setPreserveFormatting(true);
+        preserved.load(corpus.path());
+        preserved.putValue(corpus.sections().get(0), corpus.keys().get(0), "changed");
+        sorted.setSorted(true);
+    }
+
+    @Benchmark
+    public void store() throws IOException {
+        ini.store(new Corpus.NullWriter(), "benchmark");
+    }
+
+    @Benchmark
+    public void storeSorted() throws IOException {
+        ini.store(new Corpus.NullWriter(), "benchmark", sorted);
+    }
+
+    @Benchmark
+    public void storePreservingFormatting() throws IOException {
+        preserved.store(new Corpus.NullWriter(), "benchmark");
+    }
+}
@@ -0,0 +1,56 @@
+package com.github.vincentrussell.ini.benchmarks;
+
+import com.github.vincentrussell.ini.Ini;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading files whose values refer to other keys with <code>${}</code>, resolved while reading or, with cross section
+ * references, after the whole file has been read.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SubstitutionBenchmark {
+
+    @Param({"64KB", "1MB", "32MB"})
+    public String size;
+
+    @Param({"REFERENCES", "MIXED"})
+    public Corpus.Shape shape;
+
+    @Param({"false", "true"})
+    public boolean crossSectionReferences;
+
+    private Path path;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        path = Corpus.get(size, shape).path();
+    }
+
+    @Benchmark
+    public Ini load() throws IOException {
+        final Ini ini = new Ini();
+        ini.setCrossSectionReferences(crossSectionReferences);
+        ini.load(path);
+        return ini;
+    }
+}
@@ -0,0 +1,180 @@
+package com.github.vincentrussell.ini;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Keeps the binary form of an ini file next to it, in a file with the same name followed by <code>.bin</code>, so
+ * that the next load can skip parsing.  The cache file starts with the modification time, size and SHA-256 digest
+ * of the text it was made from, the charset and the settings that change what loading stores; it is used only while
+ * all of them match and is rewritten otherwise.  Failing to read or write the cache file is not an error, the text
+ * is parsed instead.
+ *
+ * Files with <code>${}</code> references are always parsed and never cached, because their values depend on system
+ * properties and environment variables that may have changed since the cache file was written.
+ */
+final class BinaryCache {
+
+    private static final int MAGIC = 0x494e4943;
+    private static final int VERSION = 1;
+
+    private BinaryCache() {
+
+    }
+
+    /**
+     * @param path the ini file
+     * @return the path of the cache file of an ini file
+     */
+    static Path cachePath(final Path path) {
+        return path.resolveSibling(path.getFileName() + ".bin");
+    }
+
+    /**
+     * load the sections of an ini file from its cache file, parsing the file and writing the cache file when it is
+     * missing or out of date.
+     * @param ini the empty ini whose settings are used for parsing
+     * @param path the ini file
+     * @param charset the charset of the ini file
+     * @param measurement the measurement of the load in progress, null if the load is not measured
+     * @return the sections as they are stored
+     * @throws IOException thrown when the ini file cannot be read.
+     */
+    static Map<String, Map<String, Object>> load(final Ini ini, final Path path, final Charset charset,
+                                                 final LoadMeasurement measurement) throws IOException {
+        final long modified = Files.getLastModifiedTime(path).toMillis();
+        final byte[] source = Files.readAllBytes(path);
+        final Ini parsed = ini.newEmptyIni();
+        parsed.setBinaryCache(false);
+        if (hasReferences(source, charset)) {
+            parse(parsed, source, charset, measurement);
+            return parsed.rawSections();
+        }
+        final byte[] digest = digest(source);
+        final Path cachePath = cachePath(path);
+        final String settings = settings(ini, charset);
+
+        final Map<String, Map<String, Object>> cached = read(cachePath, modified, source.length, digest, settings);
+        if (cached != null) {
+            return cached;
+        }
+
+        parse(parsed, source, charset, measurement);
+        write(cachePath, modified, source.length, digest, settings, parsed.rawSections());
+        return parsed.rawSections();
+    }
+
+    private static void parse(final Ini ini, final byte[] source, final Charset charset,
+                              final LoadMeasurement measurement) throws IOException {
+        try (Reader reader = Channels.newReader(Channels.newChannel(new ByteArrayInputStream(source)),
+                MappedFileReader.newDecoder(charset), -1)) {
+            ini.load(reader, measurement);
+        }
+    }
+
+    /**
+     * @return true if the text contains <code>${</code>; for charsets that encode ASCII as single bytes the bytes
+     * are searched without decoding them
+     */
+    private static boolean hasReferences(final byte[] source, final Charset charset) {
+        if (!charset.equals(StandardCharsets.UTF_8) && charset.newEncoder().maxBytesPerChar() != 1) {
+            return new String(source, charset).contains("${");
+        }
+        for (int i = 0; i + 1 < source.length; i++) {
+            if (source[i] == '$' && source[i + 1] == '{') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Map<String, Map<String, Object>> read(final Path cachePath, final long modified, final long size,
+                                                         final byte[] digest, final String settings) {
+        if (!Files.isRegularFile(cachePath)) {
+            return null;
+        }
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(cachePath)))) {
+            if (input.readInt() != MAGIC || input.readUnsignedByte() != VERSION || input.readLong() != modified
+                    || input.readLong() != size) {
+                return null;
+            }
+            final byte[] cachedDigest = new byte[digest.length];
+            input.readFully(cachedDigest);
+            if (!Arrays.equals(digest, cachedDigest) || !settings.equals(input.readUTF())) {
+                return null;
+            }
+            return IniBinaryFormat.read(input);
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static void write(final Path cachePath, final long modified, final long size, final byte[] digest,
+                              final String settings, final Map<String, Map<String, Object>> sections) {
+        Path temporary = null;
+        try {
+            temporary = Files.createTempFile(cachePath.toAbsolutePath().getParent(),
+                    cachePath.getFileName().toString(), ".tmp");
+            try (OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(temporary))) {
+                final DataOutputStream output = new DataOutputStream(outputStream);
+                output.writeInt(MAGIC);
+                output.writeByte(VERSION);
+                output.writeLong(modified);
+                output.writeLong(size);
+                output.write(digest);
+                output.writeUTF(settings);
+                IniBinaryFormat.write(sections, output);
+            }
+            try {
+                Files.move(temporary, cachePath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, cachePath, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException | RuntimeException e) {
+            deleteQuietly(temporary);
+        }
+    }
+
+    private static void deleteQuietly(final Path path) {
+        if (path != null) {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                // the cache is only an optimization
+            }
+        }
+    }
+
+    /**
+     * @return the charset and the settings that change the values that loading stores
+     */
+    private static String settings(final Ini ini, final Charset charset) {
+        return charset.name() + ";lazy=" + ini.isLazyValueConversion()
+                + ";crossSectionReferences=" + ini.isCrossSectionReferences();
+    }
+
+    private static byte[] digest(final byte[] bytes) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(bytes);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.github.vincentrussell.ini;
+
+import org.apache.commons.io.input.CharSequenceReader;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Parses the text of one large ini file in parallel.  The text is split into chunks that start at a section header,
+ * the chunks are tokenized on the common {@link java.util.concurrent.ForkJoinPool} and their entries are returned in
+ * the order of the file, so applying them one after the other gives the same result as reading the file from start
+ * to end.
+ *
+ * Every line is tokenized on its own except for continuation lines, which may carry on past a section header.  A
+ * chunk that ends in the middle of a continued value is tokenized again together with the chunk after it.
+ */
+final class ChunkedIniParser {
+
+    /**
+     * the default number of characters in a chunk.
+     */
+    static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+
+    private final String text;
+    private final Function<String, Object> converter;
+
+    private ChunkedIniParser(final String text, final Function<String, Object> converter) {
+        this.text = text;
+        this.converter = converter;
+    }
+
+    /**
+     * tokenize the text of an ini file in chunks.
+     * @param text the contents of the ini file
+     * @param section the section of the entries before the first section header
+     * @param chunkSize the number of characters after which the text is split at the next section header
+     * @param converter converts the values without references, on the thread that tokenizes the chunk
+     * @return the chunks in the order of the file
+     */
+    static List<Chunk> parse(final String text, final String section, final int chunkSize,
+                             final Function<String, Object> converter) {
+        return new ChunkedIniParser(text, converter).parse(section, chunkSize);
+    }
+
+    private List<Chunk> parse(final String section, final int chunkSize) {
+        final int[] offsets = split(chunkSize);
+        final List<Chunk> chunks = IntStream.range(0, offsets.length - 1)
+                .parallel()
+                .mapToObj(i -> tokenize(offsets[i], offsets[i + 1], i == 0 ? section : null))
+                .collect(Collectors.toList());
+
+        final List<Chunk> result = new ArrayList<>(chunks.size());
+        Chunk current = chunks.get(0);
+        for (int i = 1; i < chunks.size(); i++) {
+            if (current.pendingValue) {
+                current = tokenize(current.start, chunks.get(i).end, current.section);
+            } else {
+                result.add(current);
+                current = chunks.get(i);
+            }
+        }
+        result.add(current);
+        return result;
+    }
+
+    /**
+     * @return the offsets where chunks start, followed by the length of the text
+     */
+    private int[] split(final int chunkSize) {
+        final int length = text.length();
+        int[] offsets = new int[16];
+        int count = 1;
+        int target = chunkSize;
+        while (target < length) {
+            int lineStart = nextLineStart(target);
+            while (lineStart < length && !isSectionHeader(lineStart)) {
+                lineStart = nextLineStart(lineStart);
+            }
+            if (lineStart >= length) {
+                break;
+            }
+            if (count + 1 == offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            }
+            offsets[count++] = lineStart;
+            target = lineStart + chunkSize;
+        }
+        offsets[count++] = length;
+        return Arrays.copyOf(offsets, count);
+    }
+
+    private int nextLineStart(final int from) {
+        final int newLine = text.indexOf('\n', from);
+        return newLine < 0 ? text.length() : newLine + 1;
+    }
+
+    /**
+     * @return true if the line that starts at an offset is a section header as {@link IniTokenizer} reads it
+     */
+    private boolean isSectionHeader(final int lineStart) {
+        int end = lineStart;
+        while (end < text.length() && text.charAt(end) != '\n' && text.charAt(end) != '\r') {
+            final char c = text.charAt(end);
+            if (c == '\u0085' || c == '\u2028' || c == '\u2029') {
+                return false;
+            }
+            end++;
+        }
+        int start = lineStart;
+        while (start < end && (text.charAt(start) == ' ' || text.charAt(start) == '\t')) {
+            start++;
+        }
+        return start < end && text.charAt(start) == '['
+                && Ini.SECTION_PATTERN.matcher(text.subSequence(lineStart, end)).matches();
+    }
+
+    private Chunk tokenize(final int start, final int end, final String section) {
+        final Chunk chunk = new Chunk(start, end, section);
+        final IniTokenizer tokenizer = new IniTokenizer(new CharSequenceReader(text, start, end));
+        String currentSection = section;
+        try {
+            IniTokenizer.Token token;
+            while ((token = tokenizer.next()) != IniTokenizer.Token.END) {
+                if (token == IniTokenizer.Token.SECTION) {
+                    currentSection = tokenizer.section();
+                } else if (token == IniTokenizer.Token.KEY_VALUE) {
+                    final String value = tokenizer.value();
+                    final boolean variables = tokenizer.hasVariables();
+                    chunk.add(currentSection, tokenizer.key(), variables ? value : converter.apply(value), variables);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        chunk.pendingValue = tokenizer.hasPendingValue();
+        return chunk;
+    }
+
+    /**
+     * the entries of a part of the file.
+     */
+    static final class Chunk {
+        private final int start;
+        private final int end;
+        private final String section;
+        private boolean pendingValue;
+        private int size;
+        private String[] sections = new String[16];
+        private String[] keys = new String[16];
+        private Object[] values = new Object[16];
+        private boolean[] variables = new boolean[16];
+
+        private Chunk(final int start, final int end, final String section) {
+            this.start = start;
+            this.end = end;
+            this.section = section;
+        }
+
+        private void add(final String entrySection, final String key, final Object value, final boolean hasVariables) {
+            if (size == keys.length) {
+                sections = Arrays.copyOf(sections, size * 2);
+                keys = Arrays.copyOf(keys, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+                variables = Arrays.copyOf(variables, size * 2);
+            }
+            sections[size] = entrySection;
+            keys[size] = key;
+            values[size] = value;
+            variables[size] = hasVariables;
+            size++;
+        }
+
+        /**
+         * @return the number of entries
+         */
+        int size() {
+            return size;
+        }
+
+        /**
+         * @param index the index of the entry
+         * @return the section of the entry
+         */
+        String section(final int index) {
+            return sections[index];
+        }
+
+        /**
+         * @param index the index of the entry
+         * @return the key of the entry
+         */
+        String key(final int index) {
+            return keys[index];
+        }
+
+        /**
+         * @param index the index of the entry
+         * @return the converted value, or the decoded text when the value has references
+         */
+        Object value(final int index) {
+            return values[index];
+        }
+
+        /**
+         * @param index the index of the entry
+         * @return true if the value has references that still need to be resolved
+         */
+        boolean hasVariables(final int index) {
+            return variables[index];
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package com.github.vincentrussell.ini;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Mutable, insertion ordered map with string keys, laid out like {@link FrozenMap}: keys and values are kept in two
+ * arrays and found through an open addressing table of array positions, so the map holds no entry objects and takes
+ * a fraction of the memory of a {@link java.util.LinkedHashMap}.  Removing a key shifts the keys after it and
+ * rebuilds the table, which takes time proportional to the size of the map; the map is meant for the sections of an
+ * ini file, which are rarely removed from.  Not thread safe.
+ * @param <V> the type of the values
+ */
+final class CompactMap<V> extends AbstractMap<String, V> {
+
+    private static final int INITIAL_CAPACITY = 4;
+
+    private String[] keys;
+    private Object[] values;
+    private int[] table;
+    private int size;
+
+    /**
+     * create an empty map.
+     */
+    CompactMap() {
+        keys = new String[INITIAL_CAPACITY];
+        values = new Object[INITIAL_CAPACITY];
+        table = new int[INITIAL_CAPACITY * 2];
+    }
+
+    /**
+     * copy a map, keeping its iteration order.
+     * @param map the map to copy
+     */
+    CompactMap(final Map<String, ? extends V> map) {
+        final int capacity = Math.max(INITIAL_CAPACITY, map.size());
+        keys = new String[capacity];
+        values = new Object[capacity];
+        table = new int[tableCapacity(capacity)];
+        for (Map.Entry<String, ? extends V> entry : map.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private static int tableCapacity(final int size) {
+        int capacity = 2;
+        while (capacity < size * 2) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static int hash(final Object key) {
+        final int hash = key == null ? 0 : key.hashCode();
+        return hash ^ (hash >>> 16);
+    }
+
+    private int indexOf(final Object key) {
+        final int mask = table.length - 1;
+        int slot = hash(key) & mask;
+        int position;
+        while ((position = table[slot]) != 0) {
+            final String candidate = keys[position - 1];
+            if (candidate == null ? key == null : candidate.equals(key)) {
+                return position - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void index(final int index) {
+        final int mask = table.length - 1;
+        int slot = hash(keys[index]) & mask;
+        while (table[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = index + 1;
+    }
+
+    private void rebuildTable(final int capacity) {
+        table = new int[capacity];
+        for (int i = 0; i < size; i++) {
+            index(i);
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(final Object key) {
+        final int index = indexOf(key);
+        return index >= 0 ? (V) values[index] : null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V put(final String key, final V value) {
+        final int index = indexOf(key);
+        if (index >= 0) {
+            final V previous = (V) values[index];
+            values[index] = value;
+            return previous;
+        }
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        keys[size] = key;
+        values[size] = value;
+        if ((size + 1) * 2 > table.length) {
+            size++;
+            rebuildTable(table.length * 2);
+        } else {
+            index(size++);
+        }
+        return null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V remove(final Object key) {
+        final int index = indexOf(key);
+        if (index < 0) {
+            return null;
+        }
+        final V previous = (V) values[index];
+        removeAt(index);
+        return previous;
+    }
+
+    private void removeAt(final int index) {
+        System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+        System.arraycopy(values, index + 1, values, index, size - index - 1);
+        size--;
+        keys[size] = null;
+        values[size] = null;
+        rebuildTable(table.length);
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(keys, 0, size, null);
+        Arrays.fill(values, 0, size, null);
+        Arrays.fill(table, 0);
+        size = 0;
+    }
+
+    @Override
+    public Set<Entry<String, V>> entrySet() {
+        return new AbstractSet<Entry<String, V>>() {
+            @Override
+            public Iterator<Entry<String, V>> iterator() {
+                return new Iterator<Entry<String, V>>() {
+                    private int index;
+                    private boolean removable;
+
+                    @Override
+                    public boolean hasNext() {
+                        return index < size;
+                    }
+
+                    @Override
+                    public Entry<String, V> next() {
+                        if (index >= size) {
+                            throw new NoSuchElementException();
+                        }
+                        removable = true;
+                        return new CompactEntry(index++);
+                    }
+
+                    @Override
+                    public void remove() {
+                        if (!removable) {
+                            throw new IllegalStateException();
+                        }
+                        removable = false;
+                        removeAt(--index);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * an entry that reads and writes the arrays of the map.
+     */
+    private final class CompactEntry implements Entry<String, V> {
+        private final int index;
+
+        private CompactEntry(final int index) {
+            this.index = index;
+        }
+
+        @Override
+        public String getKey() {
+            return keys[index];
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V getValue() {
+            return (V) values[index];
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V setValue(final V value) {
+            final V previous = (V) values[index];
+            values[index] = value;
+            return previous;
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            if (!(other instanceof Entry)) {
+                return false;
+            }
+            final Entry<?, ?> entry = (Entry<?, ?>) other;
+            return (getKey() == null ? entry.getKey() == null : getKey().equals(entry.getKey()))
+                    && (getValue() == null ? entry.getValue() == null : getValue().equals(entry.getValue()));
+        }
+
+        @Override
+        public int hashCode() {
+            return (getKey() == null ? 0 : getKey().hashCode()) ^ (getValue() == null ? 0 : getValue().hashCode());
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+}
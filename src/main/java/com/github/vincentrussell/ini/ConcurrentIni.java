@@ -0,0 +1,226 @@
+package com.github.vincentrussell.ini;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An {@link Ini} that can be read and written from several threads at once.
+ *
+ * Every section is an immutable map that is replaced as a whole when one of its keys changes, so reads never take a
+ * lock and always see a consistent section.  Writes to a section are serialized by a lock for that section only;
+ * adding or removing sections takes a lock for the list of sections.  Sections and keys keep the order in which they
+ * were added.
+ *
+ * {@link #load(java.io.InputStream)} parses the file before publishing anything, so readers see either none or all
+ * of the values of a section that the file changes.  The collections returned by {@link #getSections()},
+ * {@link #getKeys(String)} and {@link #getSection(String)} are snapshots that do not change afterwards.
+ */
+public class ConcurrentIni extends Ini {
+
+    private final Object sectionsLock = new Object();
+    private volatile Map<String, Section> sections = Collections.emptyMap();
+
+    /**
+     * default constructor
+     */
+    public ConcurrentIni() {
+
+    }
+
+    @Override
+    void loadSections(final Reader reader, final LoadMeasurement measurement) throws IOException {
+        final Ini loaded = newEmptyIni();
+        final Map<String, Section> before = sections;
+        for (Map.Entry<String, Section> section : before.entrySet()) {
+            loaded.putValues(section.getKey(), section.getValue().entries);
+        }
+        loaded.load(reader, measurement);
+        for (Map.Entry<String, Map<String, Object>> section : loaded.rawSections().entrySet()) {
+            final Section existing = before.get(section.getKey());
+            final Map<String, Object> previous = existing != null ? existing.entries : Collections.emptyMap();
+            final Map<String, Object> changes = new LinkedHashMap<>();
+            for (Map.Entry<String, Object> entry : section.getValue().entrySet()) {
+                if (previous.get(entry.getKey()) != entry.getValue() || !previous.containsKey(entry.getKey())) {
+                    changes.put(entry.getKey(), entry.getValue());
+                }
+            }
+            if (!changes.isEmpty() || existing == null) {
+                putValues(section.getKey(), changes);
+            }
+        }
+    }
+
+    @Override
+    Map<String, Map<String, Object>> rawSections() {
+        return new SectionsView(sections);
+    }
+
+    @Override
+    Map<String, Object> sectionMap(final String section) {
+        final Section current = sections.get(section);
+        return current != null ? current.entries : null;
+    }
+
+    @Override
+    public Collection<String> getSections() {
+        return Collections.unmodifiableSet(sections.keySet());
+    }
+
+    @Override
+    public void putValue(final String section, final String key, final Object value) {
+        while (true) {
+            final Section current = getOrCreateSection(section);
+            synchronized (current) {
+                if (!current.removed) {
+                    final Map<String, Object> entries = copySectionMap(current.entries);
+                    entries.put(key, value);
+                    current.entries = Collections.unmodifiableMap(entries);
+                    invalidateKeys();
+                    return;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void putValues(final String sectionKey, final Map<String, Object> sectionEntries) {
+        while (true) {
+            final Section current = getOrCreateSection(sectionKey);
+            synchronized (current) {
+                if (!current.removed) {
+                    final Map<String, Object> entries = copySectionMap(current.entries);
+                    entries.putAll(sectionEntries);
+                    current.entries = Collections.unmodifiableMap(entries);
+                    invalidateKeys();
+                    return;
+                }
+            }
+        }
+    }
+
+    @Override
+    public Map<String, Object> removeSection(final String section) {
+        synchronized (sectionsLock) {
+            final Section current = sections.get(section);
+            if (current == null) {
+                return null;
+            }
+            final Map<String, Object> removed;
+            synchronized (current) {
+                current.removed = true;
+                removed = new LinkedHashMap<>(current.entries);
+            }
+            final Map<String, Section> copy = new LinkedHashMap<>(sections);
+            copy.remove(section);
+            sections = Collections.unmodifiableMap(copy);
+            invalidateKeys();
+            return ResolvedSectionMap.resolveAll(removed);
+        }
+    }
+
+    @Override
+    public Object removeSectionKey(final String section, final String key) {
+        final Section current = sections.get(section);
+        if (current == null) {
+            return null;
+        }
+        synchronized (current) {
+            if (current.removed || !current.entries.containsKey(key)) {
+                return null;
+            }
+            final Map<String, Object> entries = copySectionMap(current.entries);
+            final Object removed = entries.remove(key);
+            current.entries = Collections.unmodifiableMap(entries);
+            invalidateKeys();
+            return LazyValue.resolve(removed);
+        }
+    }
+
+    private Section getOrCreateSection(final String section) {
+        final Section current = sections.get(section);
+        if (current != null) {
+            return current;
+        }
+        synchronized (sectionsLock) {
+            final Section existing = sections.get(section);
+            if (existing != null) {
+                return existing;
+            }
+            final Section created = new Section();
+            final Map<String, Section> copy = new LinkedHashMap<>(sections);
+            copy.put(section, created);
+            sections = Collections.unmodifiableMap(copy);
+            return created;
+        }
+    }
+
+    /**
+     * a section whose entries are replaced, never modified, under the lock of the section.
+     */
+    private static final class Section {
+        private volatile Map<String, Object> entries = Collections.emptyMap();
+        private boolean removed;
+    }
+
+    /**
+     * the sections of one snapshot, as maps of their entries at the time they are read.
+     */
+    private static final class SectionsView extends AbstractMap<String, Map<String, Object>> {
+        private final Map<String, Section> sections;
+
+        private SectionsView(final Map<String, Section> sections) {
+            this.sections = sections;
+        }
+
+        @Override
+        public Set<String> keySet() {
+            return sections.keySet();
+        }
+
+        @Override
+        public Map<String, Object> get(final Object key) {
+            final Section section = sections.get(key);
+            return section != null ? section.entries : null;
+        }
+
+        @Override
+        public boolean containsKey(final Object key) {
+            return sections.containsKey(key);
+        }
+
+        @Override
+        public Set<Entry<String, Map<String, Object>>> entrySet() {
+            return new AbstractSet<Entry<String, Map<String, Object>>>() {
+                @Override
+                public Iterator<Entry<String, Map<String, Object>>> iterator() {
+                    final Iterator<Entry<String, Section>> iterator = sections.entrySet().iterator();
+                    return new Iterator<Entry<String, Map<String, Object>>>() {
+                        @Override
+                        public boolean hasNext() {
+                            return iterator.hasNext();
+                        }
+
+                        @Override
+                        public Entry<String, Map<String, Object>> next() {
+                            final Entry<String, Section> entry = iterator.next();
+                            return new SimpleImmutableEntry<>(entry.getKey(), entry.getValue().entries);
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return sections.size();
+                }
+            };
+        }
+    }
+}
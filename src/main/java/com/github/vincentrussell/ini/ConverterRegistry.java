@@ -0,0 +1,199 @@
+package com.github.vincentrussell.ini;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The converters that {@link Ini#getValue(String, String, Class)} uses to turn stored values into the requested type.
+ * The converter for a type is resolved once and cached per {@link Class} in a {@link ClassValue}, so repeated lookups
+ * do not walk a chain of type checks.
+ *
+ * Converters are provided for String, the primitive types and their wrappers, {@link BigDecimal},
+ * {@link BigInteger}, {@link Duration}, {@link Path}, {@link File}, {@link URI}, {@link InetSocketAddress}, enums and
+ * comma separated {@link List}s.  Values of any other type are returned as they are.
+ */
+public class ConverterRegistry {
+
+    private static final ConverterRegistry DEFAULT = new ConverterRegistry();
+
+    private final Map<Class<?>, ValueConverter<?>> converters = new ConcurrentHashMap<>();
+    private volatile ClassValue<ValueConverter<?>> resolved = newCache();
+
+    /**
+     * create a registry with the built in converters.
+     */
+    public ConverterRegistry() {
+        registerDefaults();
+    }
+
+    /**
+     * the registry that every {@link Ini} uses unless another one is set with
+     * {@link Ini#setConverterRegistry(ConverterRegistry)}.  Converters registered here are visible to all of them.
+     * @return the shared registry
+     */
+    public static ConverterRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * register a converter, replacing any converter registered for the same type.
+     * @param type the type that the converter produces
+     * @param converter the converter
+     * @param <T> the generic for the type
+     * @return this registry
+     */
+    public <T> ConverterRegistry register(final Class<T> type, final ValueConverter<? extends T> converter) {
+        converters.put(type, converter);
+        resolved = newCache();
+        return this;
+    }
+
+    /**
+     * get the converter for a type.
+     * @param type the desired type
+     * @param <T> the generic for the type
+     * @return the converter; values are returned as they are if there is no converter for the type
+     */
+    @SuppressWarnings("unchecked")
+    public <T> ValueConverter<T> getConverter(final Class<T> type) {
+        return (ValueConverter<T>) resolved.get(type);
+    }
+
+    /**
+     * convert a value to a type.
+     * @param value the value
+     * @param type the desired type
+     * @param <T> the generic for the type
+     * @return the converted value, null if the value is null
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T convert(final Object value, final Class<T> type) {
+        if (value == null) {
+            return null;
+        }
+        if (type.isInstance(value)) {
+            return (T) value;
+        }
+        return getConverter(type).convert(value);
+    }
+
+    private ClassValue<ValueConverter<?>> newCache() {
+        return new ClassValue<ValueConverter<?>>() {
+            @Override
+            protected ValueConverter<?> computeValue(final Class<?> type) {
+                return resolve(type);
+            }
+        };
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private ValueConverter<?> resolve(final Class<?> type) {
+        final ValueConverter<?> converter = converters.get(type);
+        if (converter != null) {
+            return converter;
+        }
+        if (type.isEnum() || (type.getSuperclass() != null && type.getSuperclass().isEnum())) {
+            final Class<? extends Enum> enumType = type.isEnum()
+                    ? (Class<? extends Enum>) type : (Class<? extends Enum>) type.getSuperclass();
+            return value -> toEnum(enumType, value);
+        }
+        return value -> value;
+    }
+
+    private void registerDefaults() {
+        register(String.class, Object::toString);
+        registerNumber(Long.class, long.class, value -> ((Number) value).longValue());
+        registerNumber(Integer.class, int.class, value -> ((Number) value).intValue());
+        registerNumber(Double.class, double.class, value -> ((Number) value).doubleValue());
+        registerNumber(Float.class, float.class, value -> ((Number) value).floatValue());
+        registerNumber(Short.class, short.class, value -> ((Number) value).shortValue());
+        registerNumber(Byte.class, byte.class, value -> ((Number) value).byteValue());
+        final ValueConverter<Object> booleanConverter = value -> value instanceof Number
+                ? value : Boolean.valueOf(value.toString());
+        converters.put(Boolean.class, booleanConverter);
+        converters.put(boolean.class, booleanConverter);
+        final ValueConverter<Object> characterConverter = value -> value instanceof Number
+                ? value : Character.valueOf(value.toString().charAt(0));
+        converters.put(Character.class, characterConverter);
+        converters.put(char.class, characterConverter);
+        register(BigDecimal.class, value -> new BigDecimal(value.toString().trim()));
+        register(BigInteger.class, value -> value instanceof Number && !(value instanceof Double)
+                && !(value instanceof Float) ? BigInteger.valueOf(((Number) value).longValue())
+                : new BigDecimal(value.toString().trim()).toBigIntegerExact());
+        register(Duration.class, value -> value instanceof Number
+                ? Duration.ofMillis(((Number) value).longValue()) : Duration.parse(value.toString().trim()));
+        register(Path.class, value -> Paths.get(value.toString()));
+        register(File.class, value -> new File(value.toString()));
+        register(URI.class, value -> URI.create(value.toString().trim()));
+        register(InetSocketAddress.class, value -> toInetSocketAddress(value.toString().trim()));
+        register(List.class, ConverterRegistry::toList);
+        register(Collection.class, ConverterRegistry::toList);
+    }
+
+    /**
+     * numbers are narrowed or widened; other values are returned as they are.
+     */
+    private <T extends Number> void registerNumber(final Class<T> wrapperType, final Class<?> primitiveType,
+                                                   final ValueConverter<T> fromNumber) {
+        final ValueConverter<Object> converter = value -> value instanceof Number
+                ? fromNumber.convert(value) : value;
+        converters.put(wrapperType, converter);
+        converters.put(primitiveType, converter);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object toEnum(final Class<? extends Enum> enumType, final Object value) {
+        final String name = value.toString().trim();
+        for (Enum constant : enumType.getEnumConstants()) {
+            if (constant.name().equals(name)) {
+                return constant;
+            }
+        }
+        for (Enum constant : enumType.getEnumConstants()) {
+            if (constant.name().equalsIgnoreCase(name)) {
+                return constant;
+            }
+        }
+        throw new IllegalArgumentException("No enum constant " + enumType.getName() + "." + name);
+    }
+
+    private static List<String> toList(final Object value) {
+        final String string = value.toString();
+        if (string.trim().isEmpty()) {
+            return Collections.emptyList();
+        }
+        final List<String> result = new ArrayList<>();
+        int start = 0;
+        int comma;
+        while ((comma = string.indexOf(',', start)) >= 0) {
+            result.add(string.substring(start, comma).trim());
+            start = comma + 1;
+        }
+        result.add(string.substring(start).trim());
+        return Collections.unmodifiableList(result);
+    }
+
+    private static InetSocketAddress toInetSocketAddress(final String value) {
+        final int colon = value.lastIndexOf(':');
+        if (colon < 0 || value.indexOf(']', colon) >= 0) {
+            throw new IllegalArgumentException("expected host:port but was " + value);
+        }
+        String host = value.substring(0, colon);
+        if (host.startsWith("[") && host.endsWith("]")) {
+            host = host.substring(1, host.length() - 1);
+        }
+        return InetSocketAddress.createUnresolved(host, Integer.parseInt(value.substring(colon + 1)));
+    }
+}
@@ -0,0 +1,227 @@
+package com.github.vincentrussell.ini;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link IniMetrics} that add up the statistics of every load and count the reads of every key with
+ * {@link LongAdder}s, so that inis read from many threads do not contend on the counters.  Keys are registered when
+ * they are loaded, which makes the keys that are never read visible.  Reads are counted per key only for registered
+ * keys; reads of other keys only add to {@link #getMisses()}, so reading arbitrary keys does not use up memory.  One
+ * instance can be shared by several inis.
+ *
+ * <pre>
+ * CountingIniMetrics metrics = new CountingIniMetrics();
+ * metrics.register("application");
+ * ini.setMetrics(metrics);
+ * </pre>
+ */
+public class CountingIniMetrics implements IniMetrics, IniMetricsMXBean {
+
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder linesRead = new LongAdder();
+    private final LongAdder keysLoaded = new LongAdder();
+    private final LongAdder substitutions = new LongAdder();
+    private final LongAdder loadNanos = new LongAdder();
+    private final LongAdder tokenizeNanos = new LongAdder();
+    private final LongAdder normalizeNanos = new LongAdder();
+    private final LongAdder substituteNanos = new LongAdder();
+    private final AtomicLong slowestLoadNanos = new AtomicLong();
+    private final AtomicLong lastLoadNanos = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final ConcurrentMap<String, ConcurrentMap<String, KeyCounter>> keys = new ConcurrentHashMap<>();
+
+    /**
+     * default constructor
+     */
+    public CountingIniMetrics() {
+
+    }
+
+    /**
+     * register these metrics with the platform MBean server as
+     * <code>com.github.vincentrussell.ini:type=IniMetrics,name=&lt;name&gt;</code>.
+     * @param name the name that tells these metrics apart from others
+     * @return the name the metrics are registered under
+     * @throws JMException if the metrics cannot be registered, for example because the name is taken
+     */
+    public ObjectName register(final String name) throws JMException {
+        final ObjectName objectName = new ObjectName("com.github.vincentrussell.ini:type=IniMetrics,name="
+                + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        return objectName;
+    }
+
+    @Override
+    public void loaded(final Ini ini, final IniLoadStatistics statistics) {
+        loads.increment();
+        bytesRead.add(statistics.getBytes());
+        linesRead.add(statistics.getLines());
+        keysLoaded.add(statistics.getKeys());
+        substitutions.add(statistics.getSubstitutions());
+        loadNanos.add(statistics.getTotalNanos());
+        tokenizeNanos.add(statistics.getTokenizeNanos());
+        normalizeNanos.add(statistics.getNormalizeNanos());
+        substituteNanos.add(statistics.getSubstituteNanos());
+        slowestLoadNanos.accumulateAndGet(statistics.getTotalNanos(), Math::max);
+        lastLoadNanos.set(statistics.getTotalNanos());
+        for (Map.Entry<String, Map<String, Object>> section : ini.rawSections().entrySet()) {
+            if (section.getKey() == null) {
+                continue;
+            }
+            final ConcurrentMap<String, KeyCounter> counters = keys.computeIfAbsent(section.getKey(),
+                    s -> new ConcurrentHashMap<>());
+            for (String key : section.getValue().keySet()) {
+                if (key != null) {
+                    counters.computeIfAbsent(key, k -> new KeyCounter());
+                }
+            }
+        }
+    }
+
+    @Override
+    public void valueRead(final String section, final String key, final boolean found) {
+        (found ? hits : misses).increment();
+        if (section == null || key == null) {
+            return;
+        }
+        final ConcurrentMap<String, KeyCounter> counters = keys.get(section);
+        final KeyCounter counter = counters != null ? counters.get(key) : null;
+        if (counter != null) {
+            (found ? counter.hits : counter.misses).increment();
+        }
+    }
+
+    @Override
+    public long getLoads() {
+        return loads.sum();
+    }
+
+    @Override
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    @Override
+    public long getLinesRead() {
+        return linesRead.sum();
+    }
+
+    @Override
+    public long getKeysLoaded() {
+        return keysLoaded.sum();
+    }
+
+    @Override
+    public long getSubstitutions() {
+        return substitutions.sum();
+    }
+
+    @Override
+    public long getLoadNanos() {
+        return loadNanos.sum();
+    }
+
+    @Override
+    public long getTokenizeNanos() {
+        return tokenizeNanos.sum();
+    }
+
+    @Override
+    public long getNormalizeNanos() {
+        return normalizeNanos.sum();
+    }
+
+    @Override
+    public long getSubstituteNanos() {
+        return substituteNanos.sum();
+    }
+
+    @Override
+    public long getSlowestLoadNanos() {
+        return slowestLoadNanos.get();
+    }
+
+    @Override
+    public long getLastLoadNanos() {
+        return lastLoadNanos.get();
+    }
+
+    @Override
+    public long getHits() {
+        return hits.sum();
+    }
+
+    @Override
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    @Override
+    public Map<String, Long> getKeyHits() {
+        return counts(true);
+    }
+
+    @Override
+    public Map<String, Long> getKeyMisses() {
+        return counts(false);
+    }
+
+    private Map<String, Long> counts(final boolean found) {
+        final Map<String, Long> counts = new TreeMap<>();
+        for (Map.Entry<String, ConcurrentMap<String, KeyCounter>> section : keys.entrySet()) {
+            for (Map.Entry<String, KeyCounter> key : section.getValue().entrySet()) {
+                final long count = (found ? key.getValue().hits : key.getValue().misses).sum();
+                if (count > 0) {
+                    counts.put(section.getKey() + "." + key.getKey(), count);
+                }
+            }
+        }
+        return counts;
+    }
+
+    @Override
+    public List<String> getUnreadKeys() {
+        final List<String> unread = new ArrayList<>();
+        for (Map.Entry<String, ConcurrentMap<String, KeyCounter>> section : keys.entrySet()) {
+            for (Map.Entry<String, KeyCounter> key : section.getValue().entrySet()) {
+                if (key.getValue().hits.sum() == 0 && key.getValue().misses.sum() == 0) {
+                    unread.add(section.getKey() + "." + key.getKey());
+                }
+            }
+        }
+        Collections.sort(unread);
+        return unread;
+    }
+
+    @Override
+    public void reset() {
+        for (LongAdder adder : new LongAdder[] {loads, bytesRead, linesRead, keysLoaded, substitutions, loadNanos,
+                tokenizeNanos, normalizeNanos, substituteNanos, hits, misses}) {
+            adder.reset();
+        }
+        slowestLoadNanos.set(0);
+        lastLoadNanos.set(0);
+        keys.clear();
+    }
+
+    /**
+     * the reads of one key.
+     */
+    private static final class KeyCounter {
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+    }
+}
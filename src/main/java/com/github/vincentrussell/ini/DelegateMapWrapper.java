@@ -1,10 +1,20 @@
 package com.github.vincentrussell.ini;
 
 import java.util.AbstractMap;
-import java.util.HashSet;
+import java.util.AbstractSet;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
+/**
+ * Read only view of several maps as one.  Lookups check the source maps in order and the first map that contains a
+ * key wins; nothing is copied.
+ *
+ * @deprecated variables are no longer looked up through this class since {@link Ini} resolves references itself;
+ * it will be removed in a future release.
+ */
+@Deprecated
 public final class DelegateMapWrapper extends AbstractMap<String, Object> {
 
     final Map<String, Object>[] sourceMaps;
@@ -14,11 +24,101 @@ public final class DelegateMapWrapper extends AbstractMap<String, Object> {
     }
 
     @Override
-    public Set<Entry<String, Object>> entrySet() {
-        Set<Entry<String, Object>> entrySet = new HashSet<>();
+    public Object get(final Object key) {
+        for (Map<String, Object> map : sourceMaps) {
+            final Object value = map.get(key);
+            if (value != null || map.containsKey(key)) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        for (Map<String, Object> map : sourceMaps) {
+            if (map.containsKey(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean isEmpty() {
         for (Map<String, Object> map : sourceMaps) {
-            entrySet.addAll(map.entrySet());
+            if (!map.isEmpty()) {
+                return false;
+            }
         }
-        return entrySet;
+        return true;
+    }
+
+    private boolean isShadowed(final Object key, final int mapIndex) {
+        for (int i = 0; i < mapIndex; i++) {
+            if (sourceMaps[i].containsKey(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return new AbstractSet<Entry<String, Object>>() {
+            @Override
+            public Iterator<Entry<String, Object>> iterator() {
+                return new Iterator<Entry<String, Object>>() {
+                    private int mapIndex;
+                    private Iterator<Entry<String, Object>> iterator;
+                    private Entry<String, Object> next = advance();
+
+                    private Entry<String, Object> advance() {
+                        while (mapIndex < sourceMaps.length) {
+                            if (iterator == null) {
+                                iterator = sourceMaps[mapIndex].entrySet().iterator();
+                            }
+                            while (iterator.hasNext()) {
+                                final Entry<String, Object> entry = iterator.next();
+                                if (!isShadowed(entry.getKey(), mapIndex)) {
+                                    return new SimpleImmutableEntry<>(entry);
+                                }
+                            }
+                            iterator = null;
+                            mapIndex++;
+                        }
+                        return null;
+                    }
+
+                    @Override
+                    public boolean hasNext() {
+                        return next != null;
+                    }
+
+                    @Override
+                    public Entry<String, Object> next() {
+                        if (next == null) {
+                            throw new NoSuchElementException();
+                        }
+                        final Entry<String, Object> current = next;
+                        next = advance();
+                        return current;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                int size = 0;
+                for (int i = 0; i < sourceMaps.length; i++) {
+                    for (String key : sourceMaps[i].keySet()) {
+                        if (!isShadowed(key, i)) {
+                            size++;
+                        }
+                    }
+                }
+                return size;
+            }
+        };
     }
 }
@@ -0,0 +1,127 @@
+package com.github.vincentrussell.ini;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Immutable, insertion ordered map with string keys.  Keys and values are kept in two arrays and found through an
+ * open addressing table of array positions, so a lookup does not allocate and the map holds no entry objects.
+ * @param <V> the type of the values
+ */
+final class FrozenMap<V> extends AbstractMap<String, V> {
+
+    private final String[] keys;
+    private final Object[] values;
+    private final int[] table;
+    private long contentHash;
+    private volatile boolean contentHashed;
+
+    /**
+     * copy a map, keeping its iteration order.
+     * @param map the map to copy
+     */
+    FrozenMap(final Map<String, ? extends V> map) {
+        final int size = map.size();
+        keys = new String[size];
+        values = new Object[size];
+        int capacity = 2;
+        while (capacity < size * 2) {
+            capacity <<= 1;
+        }
+        table = new int[capacity];
+        int index = 0;
+        for (Map.Entry<String, ? extends V> entry : map.entrySet()) {
+            keys[index] = entry.getKey();
+            values[index] = entry.getValue();
+            int slot = hash(entry.getKey()) & (capacity - 1);
+            while (table[slot] != 0) {
+                slot = (slot + 1) & (capacity - 1);
+            }
+            table[slot] = ++index;
+        }
+    }
+
+    private static int hash(final Object key) {
+        final int hash = key == null ? 0 : key.hashCode();
+        return hash ^ (hash >>> 16);
+    }
+
+    private int indexOf(final Object key) {
+        final int mask = table.length - 1;
+        int slot = hash(key) & mask;
+        int position;
+        while ((position = table[slot]) != 0) {
+            final String candidate = keys[position - 1];
+            if (candidate == null ? key == null : candidate.equals(key)) {
+                return position - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * @return the hash that {@link IniDiff} compares sections by; computed on first use.
+     */
+    @SuppressWarnings("unchecked")
+    long contentHash() {
+        if (!contentHashed) {
+            contentHash = IniDiff.computeContentHash((Map<String, Object>) this);
+            contentHashed = true;
+        }
+        return contentHash;
+    }
+
+    @Override
+    public int size() {
+        return keys.length;
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(final Object key) {
+        final int index = indexOf(key);
+        return index >= 0 ? (V) values[index] : null;
+    }
+
+    @Override
+    public Set<Entry<String, V>> entrySet() {
+        return new AbstractSet<Entry<String, V>>() {
+            @Override
+            public Iterator<Entry<String, V>> iterator() {
+                return new Iterator<Entry<String, V>>() {
+                    private int index;
+
+                    @Override
+                    public boolean hasNext() {
+                        return index < keys.length;
+                    }
+
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public Entry<String, V> next() {
+                        if (index >= keys.length) {
+                            throw new NoSuchElementException();
+                        }
+                        final int current = index++;
+                        return new SimpleImmutableEntry<>(keys[current], (V) values[current]);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return keys.length;
+            }
+        };
+    }
+}
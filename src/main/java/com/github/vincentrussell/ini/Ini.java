@@ -1,23 +1,38 @@
 package com.github.vincentrussell.ini;
 
 import org.apache.commons.io.IOUtils;
-import org.apache.commons.lang3.ClassUtils;
+import org.apache.commons.io.input.CharSequenceReader;
+import org.apache.commons.io.input.CountingInputStream;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.math.NumberUtils;
 import org.apache.commons.lang3.mutable.MutableObject;
-import org.apache.commons.text.StringSubstitutor;
 
 import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.text.NumberFormat;
 import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.Comparator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadFactory;
 import java.util.function.Predicate;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -30,11 +45,27 @@ import static org.apache.commons.lang3.ObjectUtils.firstNonNull;
  */
 public class Ini {
 
-    private static final String NO_SECTION = "_NO_SECTION";
-    private static Pattern SECTION_PATTERN  = Pattern.compile( "\\s*\\[([^]]*)\\]\\s*" );
-    private static Pattern  KEY_VALUE_PATTER = Pattern.compile( "\\s*([^=]*)=(.*)" );
-    private static Pattern COMMENT_LINE = Pattern.compile("^[;|#].*");
+    static final String NO_SECTION = "_NO_SECTION";
+    private static final long DEFAULT_MEMORY_MAPPING_THRESHOLD = 1024 * 1024;
+    private static final int MAX_DEDUPLICATED_VALUE_LENGTH = 64;
+    static final Pattern SECTION_PATTERN  = Pattern.compile( "\\s*\\[([^]]*)\\]\\s*" );
+    static final Pattern  KEY_VALUE_PATTER = Pattern.compile( "\\s*([^=]*)=(.*)" );
+    static final Pattern COMMENT_LINE = Pattern.compile("^[;|#].*");
     private Map<String, Map<String, Object>> resultMap = new LinkedHashMap<>();
+    private ParseMode parseMode = ParseMode.TOKENIZER;
+    private long memoryMappingThreshold = DEFAULT_MEMORY_MAPPING_THRESHOLD;
+    private boolean lazyValueConversion = true;
+    private boolean crossSectionReferences;
+    private boolean binaryCache;
+    private boolean preserveFormatting;
+    private boolean deduplication;
+    private volatile IniDocument document;
+    private IniMetrics metrics = IniMetrics.NOOP;
+    private volatile KeyHandles keyHandles;
+    private int parallelChunkSize = ChunkedIniParser.DEFAULT_CHUNK_SIZE;
+    private ConverterRegistry converterRegistry = ConverterRegistry.getDefault();
+    private static final ThreadFactory VIRTUAL_THREADS = virtualThreadFactory();
+    private static final ThreadLocal<NumberFormat> NUMBER_FORMAT = ThreadLocal.withInitial(NumberFormat::getInstance);
 
 
     /**
@@ -44,19 +75,207 @@ public class Ini {
 
     }
 
+    /**
+     * set the strategy used to read ini files.  Defaults to {@link ParseMode#TOKENIZER}.
+     * @param parseMode the parse mode
+     */
+    public void setParseMode(final ParseMode parseMode) {
+        this.parseMode = parseMode;
+    }
+
+    /**
+     * get the strategy used to read ini files.
+     * @return the parse mode
+     */
+    public ParseMode getParseMode() {
+        return parseMode;
+    }
+
+    /**
+     * set whether values that look like numbers are kept as text when an ini file is loaded and only converted to a
+     * {@link Number} the first time they are read.  Defaults to true.  Set to false to convert every value while
+     * loading, the way earlier versions did.
+     * @param lazyValueConversion true to convert values on access, false to convert them while loading
+     */
+    public void setLazyValueConversion(final boolean lazyValueConversion) {
+        this.lazyValueConversion = lazyValueConversion;
+    }
+
+    /**
+     * get whether values are converted on access instead of while loading.
+     * @return true if values are converted on access
+     */
+    public boolean isLazyValueConversion() {
+        return lazyValueConversion;
+    }
+
+    /**
+     * set whether <code>${}</code> references are resolved after the whole file has been read instead of while it
+     * is read.  Defaults to false.  When enabled, values can refer to keys that appear later in the file and to keys
+     * of other sections as <code>${section.key}</code>, and values that refer to keys that do not exist yet are
+     * resolved again by {@link #merge(Ini)} and {@link #resolveReferences()}.
+     * @param crossSectionReferences true to resolve references after loading
+     */
+    public void setCrossSectionReferences(final boolean crossSectionReferences) {
+        this.crossSectionReferences = crossSectionReferences;
+    }
+
+    /**
+     * get whether <code>${}</code> references are resolved after the whole file has been read.
+     * @return true if references are resolved after loading
+     */
+    public boolean isCrossSectionReferences() {
+        return crossSectionReferences;
+    }
+
+    /**
+     * set the registry that {@link #getValue(String, String, Class)} uses to convert values.  Defaults to
+     * {@link ConverterRegistry#getDefault()}.
+     * @param converterRegistry the converter registry
+     */
+    public void setConverterRegistry(final ConverterRegistry converterRegistry) {
+        this.converterRegistry = converterRegistry;
+        invalidateKeys();
+    }
+
+    /**
+     * get the registry that {@link #getValue(String, String, Class)} uses to convert values.
+     * @return the converter registry
+     */
+    public ConverterRegistry getConverterRegistry() {
+        return converterRegistry;
+    }
+
+    /**
+     * set the file size from which {@link #load(Path, Charset)} memory maps the file instead of reading it through
+     * a buffered channel.  Defaults to 1MB.
+     * @param memoryMappingThreshold the size in bytes
+     */
+    public void setMemoryMappingThreshold(final long memoryMappingThreshold) {
+        this.memoryMappingThreshold = memoryMappingThreshold;
+    }
+
+    /**
+     * get the file size from which {@link #load(Path, Charset)} memory maps the file.
+     * @return the size in bytes
+     */
+    public long getMemoryMappingThreshold() {
+        return memoryMappingThreshold;
+    }
+
+    /**
+     * keep the parsed form of every file loaded with {@link #load(Path, Charset)} in a binary cache file next to it,
+     * named like the file followed by <code>.bin</code>, and load from the cache file instead of parsing while the
+     * modification time and SHA-256 digest of the file still match.  Only used when this ini is empty, and never
+     * for files with <code>${}</code> references.  Defaults to false.
+     * @param binaryCache true to use cache files
+     */
+    public void setBinaryCache(final boolean binaryCache) {
+        this.binaryCache = binaryCache;
+    }
+
+    /**
+     * @return true if files loaded by path are cached in binary form
+     */
+    public boolean isBinaryCache() {
+        return binaryCache;
+    }
+
+    /**
+     * keep the text of the last ini file loaded so that {@link #store(Writer, String, StoreOptions)} writes it back
+     * with its comments, blank lines and formatting.  Lines whose values did not change are copied as they are, a
+     * line whose value changed is rewritten with the new value, removed keys and sections are left out, new keys are
+     * added after the last key of their section and new sections at the end of the file.  Files with a value
+     * whose continuation lines are cut off by a section header or another key are written the usual way once keys
+     * are added or removed.  Defaults to false.
+     * @param preserveFormatting true to keep the text of loaded files
+     */
+    public void setPreserveFormatting(final boolean preserveFormatting) {
+        this.preserveFormatting = preserveFormatting;
+        if (!preserveFormatting) {
+            document = null;
+        }
+    }
+
+    /**
+     * @return true if the text of loaded files is kept for storing
+     */
+    public boolean isPreserveFormatting() {
+        return preserveFormatting;
+    }
+
+    /**
+     * share the strings of what is loaded with every other ini that deduplicates, for applications that hold many
+     * inis loaded from similar files.  Section names, keys and values of up to 64 characters are interned through a
+     * weak pool shared by all inis, and sections are stored in compact array backed maps instead of
+     * {@link LinkedHashMap}s.  Loading takes a little longer.  Defaults to false.
+     * @param deduplication true to deduplicate
+     */
+    public void setDeduplication(final boolean deduplication) {
+        this.deduplication = deduplication;
+    }
+
+    /**
+     * @return true if the strings of what is loaded are shared with other inis
+     */
+    public boolean isDeduplication() {
+        return deduplication;
+    }
+
+    /**
+     * set the metrics that loads and reads of this ini are reported to.  Defaults to {@link IniMetrics#NOOP}, which
+     * measures nothing.
+     * @param metrics the metrics, for example a {@link CountingIniMetrics}
+     */
+    public void setMetrics(final IniMetrics metrics) {
+        this.metrics = metrics != null ? metrics : IniMetrics.NOOP;
+    }
+
+    /**
+     * @return the metrics that loads and reads of this ini are reported to
+     */
+    public IniMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * set the number of characters after which {@link ParseMode#PARALLEL} splits a file at the next section header.
+     * @param parallelChunkSize the size of a chunk
+     */
+    void setParallelChunkSize(final int parallelChunkSize) {
+        this.parallelChunkSize = parallelChunkSize;
+    }
+
     /**
      * default constructor with an {@link InputStream}
      * @param inputStream the ini file as an input stream
      * @throws IOException thrown when there is an error processing the ini.
      */
     public void load(final InputStream inputStream) throws IOException {
+        load(inputStream, Charset.defaultCharset());
+    }
+
+    /**
+     * load an {@link InputStream} using the provided charset
+     * @param inputStream the ini file as an input stream
+     * @param charset the charset of the ini file
+     * @throws IOException thrown when there is an error processing the ini.
+     */
+    public void load(final InputStream inputStream, final Charset charset) throws IOException {
         if (inputStream == null) {
             throw new FileNotFoundException("inputStream is null");
         }
-        MutableObject<String> section = new MutableObject<>(NO_SECTION);
-        try (InputStreamReader inputStreamReader = new InputStreamReader(inputStream);
-             BufferedReader bufferedReader = new BufferedReader(inputStreamReader)) {
-            parseIniFile(section, bufferedReader);
+        final LoadMeasurement measurement = startMeasurement();
+        if (measurement == null) {
+            try (InputStreamReader inputStreamReader = new InputStreamReader(inputStream, charset)) {
+                load(inputStreamReader, null);
+            }
+            return;
+        }
+        try (CountingInputStream countingInputStream = new CountingInputStream(inputStream);
+             InputStreamReader inputStreamReader = new InputStreamReader(countingInputStream, charset)) {
+            load(inputStreamReader, measurement);
+            finishMeasurement(measurement, countingInputStream.getByteCount());
         }
     }
 
@@ -66,7 +285,114 @@ public class Ini {
      * @throws IOException thrown when there is an error processing the ini.
      */
     public void load(final File file) throws IOException {
-        load(new FileInputStream(file));
+        try {
+            load(file.toPath(), Charset.defaultCharset());
+        } catch (NoSuchFileException e) {
+            FileNotFoundException fileNotFoundException = new FileNotFoundException(e.getMessage());
+            fileNotFoundException.initCause(e);
+            throw fileNotFoundException;
+        }
+    }
+
+    /**
+     * load an ini file encoded in UTF-8
+     * @param path the ini file
+     * @throws IOException thrown when there is an error processing the ini.
+     */
+    public void load(final Path path) throws IOException {
+        load(path, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * load an ini file.  Files at least as large as {@link #getMemoryMappingThreshold()} are memory mapped and
+     * decoded straight from the mapping; smaller files are read through a buffered channel.
+     * @param path the ini file
+     * @param charset the charset of the ini file
+     * @throws IOException thrown when there is an error processing the ini.
+     */
+    public void load(final Path path, final Charset charset) throws IOException {
+        final LoadMeasurement measurement = startMeasurement();
+        loadPath(path, charset, measurement);
+        if (measurement != null) {
+            finishMeasurement(measurement, Files.size(path));
+        }
+    }
+
+    private void loadPath(final Path path, final Charset charset, final LoadMeasurement measurement)
+            throws IOException {
+        if (binaryCache && !preserveFormatting && rawSections().isEmpty()) {
+            final Map<String, Map<String, Object>> cached = BinaryCache.load(this, path, charset, measurement);
+            if (measurement != null) {
+                measurement.loaded(cached);
+            }
+            putSections(cached);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+             Reader reader = channel.size() >= memoryMappingThreshold
+                     ? new MappedFileReader(channel, charset)
+                     : Channels.newReader(channel, MappedFileReader.newDecoder(charset), -1)) {
+            load(reader, measurement);
+        }
+    }
+
+    /**
+     * load ini text into this ini.
+     * @param textReader the ini text
+     * @param measurement the measurement of the load in progress, null if the load is not measured
+     * @throws IOException thrown when there is an error reading the text.
+     */
+    void load(final Reader textReader, final LoadMeasurement measurement) throws IOException {
+        final Reader reader = measurement != null ? measurement.countLines(textReader) : textReader;
+        if (!preserveFormatting) {
+            loadSections(reader, measurement);
+            invalidateKeys();
+            return;
+        }
+        final String text = IOUtils.toString(reader);
+        loadSections(new CharSequenceReader(text), measurement);
+        document = IniDocument.parse(text, rawSections());
+        invalidateKeys();
+    }
+
+    /**
+     * parse ini text into the sections of this ini.
+     * @param reader the ini text
+     * @param measurement the measurement of the load in progress, null if the load is not measured
+     * @throws IOException thrown when there is an error reading the text.
+     */
+    void loadSections(final Reader reader, final LoadMeasurement measurement) throws IOException {
+        MutableObject<String> section = new MutableObject<>(NO_SECTION);
+        if (parseMode == ParseMode.REGEX) {
+            parseIniFileWithPatterns(section, new BufferedReader(reader), measurement);
+        } else if (parseMode == ParseMode.PARALLEL) {
+            parseIniFileInChunks(section, IOUtils.toString(reader), measurement);
+        } else {
+            parseIniFile(section, new IniTokenizer(reader), measurement);
+        }
+        if (crossSectionReferences) {
+            if (measurement == null) {
+                resolveReferences();
+                return;
+            }
+            final long start = System.nanoTime();
+            final Map<String, Map<String, Object>> resolved = ReferenceResolver.resolve(rawSections());
+            putSections(resolved);
+            measurement.substituted(start, resolved.values().stream().mapToLong(Map::size).sum());
+        }
+    }
+
+    /**
+     * start measuring a load if this ini has metrics.  The measurement belongs to the load that started it and is
+     * passed down to the parser, so loads that run at the same time on a {@link ConcurrentIni} are measured apart.
+     * @return the measurement, null if this ini has no metrics
+     */
+    private LoadMeasurement startMeasurement() {
+        return metrics != IniMetrics.NOOP ? new LoadMeasurement() : null;
+    }
+
+    private void finishMeasurement(final LoadMeasurement measurement, final long bytes) {
+        metrics.loaded(this, measurement.finish(bytes));
     }
 
     /**
@@ -78,33 +404,366 @@ public class Ini {
         load(new ByteArrayInputStream(string.getBytes(StandardCharsets.UTF_8)));
     }
 
+    /**
+     * load several ini files as if the first was loaded and the others were merged into it one after the other, so
+     * when a key appears in more than one file the value of the last file wins.  The files are read and parsed in
+     * parallel on the common {@link java.util.concurrent.ForkJoinPool}, or on virtual threads when the JVM has them.
+     * @param paths the ini files, encoded in UTF-8, in order of increasing precedence
+     * @throws IOException thrown when there is an error processing one of the ini files.
+     */
+    public void loadAll(final Collection<Path> paths) throws IOException {
+        loadAll(paths, defaultLoadExecutor());
+    }
+
+    /**
+     * load several ini files as if the first was loaded and the others were merged into it one after the other, so
+     * when a key appears in more than one file the value of the last file wins.  The files are read and parsed in
+     * parallel on the provided executor, for example <code>Executors.newVirtualThreadPerTaskExecutor()</code>.
+     * @param paths the ini files, encoded in UTF-8, in order of increasing precedence
+     * @param executor the executor that reads and parses the files
+     * @throws IOException thrown when there is an error processing one of the ini files.
+     */
+    public void loadAll(final Collection<Path> paths, final Executor executor) throws IOException {
+        final List<CompletableFuture<Ini>> loading = new ArrayList<>(paths.size());
+        for (Path path : paths) {
+            loading.add(CompletableFuture.supplyAsync(() -> {
+                final Ini ini = newEmptyIni();
+                try {
+                    ini.load(path);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return ini;
+            }, executor));
+        }
+        for (CompletableFuture<Ini> future : loading) {
+            final Ini ini;
+            try {
+                ini = future.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof UncheckedIOException) {
+                    throw ((UncheckedIOException) e.getCause()).getCause();
+                }
+                throw e;
+            }
+            mergeValues(ini);
+        }
+        if (crossSectionReferences) {
+            resolveReferences();
+        }
+    }
+
+    /**
+     * load the files of a directory that match a glob, such as <code>*.ini</code>, with
+     * {@link #loadAll(Collection)}.  Files are merged in order of their names, so a file named
+     * <code>20-local.ini</code> overrides keys of <code>10-base.ini</code>.
+     * @param directory the directory
+     * @param glob the pattern that the names of the files must match
+     * @throws IOException thrown when there is an error processing one of the ini files.
+     */
+    public void loadDirectory(final Path directory, final String glob) throws IOException {
+        loadDirectory(directory, glob, defaultLoadExecutor());
+    }
+
+    /**
+     * load the files of a directory that match a glob, such as <code>*.ini</code>, with
+     * {@link #loadAll(Collection, Executor)}.  Files are merged in order of their names, so a file named
+     * <code>20-local.ini</code> overrides keys of <code>10-base.ini</code>.
+     * @param directory the directory
+     * @param glob the pattern that the names of the files must match
+     * @param executor the executor that reads and parses the files
+     * @throws IOException thrown when there is an error processing one of the ini files.
+     */
+    public void loadDirectory(final Path directory, final String glob, final Executor executor)
+            throws IOException {
+        final List<Path> paths = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, glob)) {
+            for (Path path : stream) {
+                if (Files.isRegularFile(path)) {
+                    paths.add(path);
+                }
+            }
+        }
+        paths.sort(Comparator.comparing(path -> path.getFileName().toString()));
+        loadAll(paths, executor);
+    }
+
+    /**
+     * @return a new, empty {@link Ini} with the settings of this one
+     */
+    Ini newEmptyIni() {
+        final Ini ini = new Ini();
+        ini.setParseMode(parseMode);
+        ini.setMemoryMappingThreshold(memoryMappingThreshold);
+        ini.setLazyValueConversion(lazyValueConversion);
+        ini.setCrossSectionReferences(crossSectionReferences);
+        ini.setConverterRegistry(converterRegistry);
+        ini.setBinaryCache(binaryCache);
+        ini.setDeduplication(deduplication);
+        ini.parallelChunkSize = parallelChunkSize;
+        ini.metrics = metrics;
+        return ini;
+    }
+
+    private static Executor defaultLoadExecutor() {
+        return VIRTUAL_THREADS != null ? runnable -> VIRTUAL_THREADS.newThread(runnable).start()
+                : ForkJoinPool.commonPool();
+    }
+
+    private static ThreadFactory virtualThreadFactory() {
+        try {
+            final Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * load an ini written by {@link #storeBinary(OutputStream)}.  Values come back with the types they were stored
+     * with and keys that are already in this ini are replaced, the same as {@link #load(InputStream)}.  With
+     * {@link #setCrossSectionReferences(boolean)} enabled, references that were stored unresolved are resolved again.
+     * @param inputStream the binary ini; it is not closed
+     * @throws IOException thrown when the stream cannot be read or is not a binary ini of a supported version.
+     */
+    public void loadBinary(final InputStream inputStream) throws IOException {
+        if (inputStream == null) {
+            throw new FileNotFoundException("inputStream is null");
+        }
+        putSections(IniBinaryFormat.read(new BufferedInputStream(inputStream)));
+        if (crossSectionReferences) {
+            resolveReferences();
+        }
+    }
+
+    /**
+     * store the ini in a compact, versioned binary form that {@link #loadBinary(InputStream)} reads back without
+     * parsing.  Section names, keys and text values are stored once in a string table; numbers and strings keep
+     * their types.
+     * @param outputStream the outputstream to write to; it is flushed but not closed
+     * @throws IOException if there is an error writing to the outputstream
+     */
+    public void storeBinary(final OutputStream outputStream) throws IOException {
+        final BufferedOutputStream bufferedOutputStream = new BufferedOutputStream(outputStream);
+        IniBinaryFormat.write(rawSections(), bufferedOutputStream);
+        bufferedOutputStream.flush();
+    }
+
+    /**
+     * store the ini in the layout that {@link MappedIni} maps and reads without loading it.
+     * @param path the file to write
+     * @throws IOException if there is an error writing the file
+     */
+    public void storeMapped(final Path path) throws IOException {
+        MappedIni.write(rawSections(), path);
+    }
+
+    private void putSections(final Map<String, Map<String, Object>> sections) {
+        for (Map.Entry<String, Map<String, Object>> section : sections.entrySet()) {
+            if (!deduplication) {
+                putValues(section.getKey(), section.getValue());
+                continue;
+            }
+            final Map<String, Object> entries = new CompactMap<>();
+            for (Map.Entry<String, Object> entry : section.getValue().entrySet()) {
+                entries.put(deduplicate(entry.getKey()), deduplicateValue(entry.getValue()));
+            }
+            putValues(deduplicate(section.getKey()), entries);
+        }
+    }
+
     /**
      * merge this {@link Ini} with another {@link Ini}.  If there are any merge conflicts the passed in {@link Ini}
-     * will take precedence.
+     * will take precedence.  With {@link #setCrossSectionReferences(boolean)} enabled, references that could not be
+     * resolved in either {@link Ini} are resolved again against the merged contents.
      * @param ini  the ini to merge
      */
     public void merge(final Ini ini) {
+        mergeValues(ini);
+        if (crossSectionReferences) {
+            resolveReferences();
+        }
+    }
+
+    private void mergeValues(final Ini ini) {
         Collection<String> sectionKeys = firstNonNull(ini.getSections(), Collections.emptyList());
         for (String sectionKey : sectionKeys) {
-            Map<String, Object> section = firstNonNull(ini.getSection(sectionKey), Collections.emptyMap());
-            Set<Map.Entry<String, Object>> entrySet = section.entrySet();
-            for (Map.Entry<String, Object> entry : entrySet ) {
-                putValue(sectionKey, entry.getKey(), entry.getValue());
+            putValues(sectionKey, withEarlierDefinitions(sectionKey,
+                    firstNonNull(ini.sectionMap(sectionKey), Collections.emptyMap())));
+        }
+    }
+
+    /**
+     * @return the entries, with unresolved values that refer to their own key referring to the value of the key in
+     * this ini instead
+     */
+    private Map<String, Object> withEarlierDefinitions(final String section, final Map<String, Object> entries) {
+        final Map<String, Object> existing = sectionMap(section);
+        if (existing == null) {
+            return entries;
+        }
+        Map<String, Object> result = entries;
+        for (Map.Entry<String, Object> entry : entries.entrySet()) {
+            if (!(entry.getValue() instanceof UnresolvedValue)) {
+                continue;
+            }
+            final VariableTemplate template = ((UnresolvedValue) entry.getValue()).template();
+            final VariableTemplate spliced = withEarlierDefinition(template, section, entry.getKey(),
+                    existing.get(entry.getKey()));
+            if (spliced != template) {
+                if (result == entries) {
+                    result = new LinkedHashMap<>(entries);
+                }
+                result.put(entry.getKey(), spliced.hasReferences() ? new UnresolvedValue(spliced, spliced.text())
+                        : spliced.resolve(name -> null));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * put the earlier value of a key in place of the references of its new value to the key itself, so that
+     * <code>path=${path}:/usr/bin</code> extends the earlier value the way it does without cross section references.
+     * @param template the new value
+     * @param section the section of the key
+     * @param key the key
+     * @param earlier the earlier value of the key, null if there is none
+     * @return the new value with the earlier value in place of references to the key, the template itself if it
+     * does not refer to the key or there is no earlier value
+     */
+    private static VariableTemplate withEarlierDefinition(final VariableTemplate template, final String section,
+                                                          final String key, final Object earlier) {
+        if (earlier == null) {
+            return template;
+        }
+        final String text = template.substitute(Arrays.asList(key, section + "." + key),
+                earlier instanceof UnresolvedValue ? ((UnresolvedValue) earlier).template().text()
+                        : LazyValue.resolve(earlier).toString());
+        return text.equals(template.text()) ? template : VariableTemplate.compile(text);
+    }
+
+    /**
+     * resolve the <code>${}</code> references that have been left unresolved by loading with
+     * {@link #setCrossSectionReferences(boolean)} enabled, for example because they refer to a key of an ini file
+     * that is merged later.  References are resolved in dependency order, each value once; references to names that
+     * still do not exist are left as they are.
+     * @throws IllegalStateException when values refer to each other in a cycle
+     */
+    public void resolveReferences() {
+        putSections(ReferenceResolver.resolve(rawSections()));
+    }
+
+    /**
+     * take an immutable copy of the current contents of this {@link Ini}.
+     * @return the snapshot
+     */
+    public IniSnapshot snapshot() {
+        return new IniSnapshot(rawSections(), converterRegistry);
+    }
+
+    /**
+     * push the contents of an ini file through an {@link IniHandler} without building an {@link Ini}.
+     * @param inputStream the ini file as an input stream
+     * @param handler the handler that receives the sections, comments and key/value pairs
+     * @throws IOException thrown when there is an error reading the ini.
+     */
+    public static void parse(final InputStream inputStream, final IniHandler handler) throws IOException {
+        parse(inputStream, Charset.defaultCharset(), handler);
+    }
+
+    /**
+     * push the contents of an ini file through an {@link IniHandler} without building an {@link Ini}.
+     * @param inputStream the ini file as an input stream
+     * @param charset the charset of the ini file
+     * @param handler the handler that receives the sections, comments and key/value pairs
+     * @throws IOException thrown when there is an error reading the ini.
+     */
+    public static void parse(final InputStream inputStream, final Charset charset,
+                             final IniHandler handler) throws IOException {
+        if (inputStream == null) {
+            throw new FileNotFoundException("inputStream is null");
+        }
+        try (InputStreamReader inputStreamReader = new InputStreamReader(inputStream, charset)) {
+            parse(new IniTokenizer(inputStreamReader), handler);
+        }
+    }
+
+    private static void parse(final IniTokenizer tokenizer, final IniHandler handler) throws IOException {
+        String currentSection = null;
+        IniTokenizer.Token token;
+        while ((token = tokenizer.next()) != IniTokenizer.Token.END) {
+            if (token == IniTokenizer.Token.SECTION) {
+                if (currentSection != null) {
+                    handler.endSection(currentSection);
+                }
+                currentSection = tokenizer.section();
+                handler.startSection(currentSection);
+            } else if (token == IniTokenizer.Token.KEY_VALUE) {
+                handler.keyValue(tokenizer.key(), tokenizer.value());
+            } else if (token == IniTokenizer.Token.COMMENT) {
+                handler.comment(tokenizer.comment());
             }
         }
+        if (currentSection != null) {
+            handler.endSection(currentSection);
+        }
+    }
+
+    private void parseIniFile(final MutableObject<String> section, final IniTokenizer tokenizer,
+                              final LoadMeasurement measurement) throws IOException {
+        parse(tokenizer, new LoadHandler(section, tokenizer, measurement));
+    }
+
+    /**
+     * the {@link IniHandler} that {@link #load(InputStream)} uses to fill this ini.
+     */
+    private final class LoadHandler implements IniHandler {
+        private final MutableObject<String> section;
+        private final IniTokenizer tokenizer;
+        private final LoadMeasurement measurement;
+
+        private LoadHandler(final MutableObject<String> section, final IniTokenizer tokenizer,
+                            final LoadMeasurement measurement) {
+            this.section = section;
+            this.tokenizer = tokenizer;
+            this.measurement = measurement;
+        }
+
+        @Override
+        public void startSection(final String name) {
+            section.setValue(name);
+        }
+
+        @Override
+        public void keyValue(final String key, final String value) {
+            putParsedValue(section, key, value, tokenizer.hasVariables(), measurement);
+        }
     }
 
-    private void parseIniFile(final MutableObject<String> section,
-                              final BufferedReader bufferedReader) throws IOException {
+    private void parseIniFileInChunks(final MutableObject<String> section, final String text,
+                                      final LoadMeasurement measurement) {
+        for (ChunkedIniParser.Chunk chunk : ChunkedIniParser.parse(text, section.getValue(), parallelChunkSize,
+                value -> parsedValue(value, measurement))) {
+            for (int i = 0; i < chunk.size(); i++) {
+                section.setValue(chunk.section(i));
+                if (chunk.hasVariables(i)) {
+                    putParsedValue(section, chunk.key(i), (String) chunk.value(i), true, measurement);
+                } else {
+                    if (measurement != null) {
+                        measurement.entry(chunk.section(i));
+                    }
+                    getMapForSection(section).put(deduplicate(chunk.key(i)), chunk.value(i));
+                }
+            }
+        }
+    }
 
-        final Map<String, Object> variables = new HashMap<>();
-        variables.putAll(System.getenv());
-        variables.putAll(new HashMap<String, Object>((Map) System.getProperties()));
+    private void parseIniFileWithPatterns(final MutableObject<String> section, final BufferedReader bufferedReader,
+                                          final LoadMeasurement measurement) throws IOException {
 
         String line = null;
         String multilineValue = null;
         String key = null;
-        Map<String, StringSubstitutor> stringStringSubstitutorPerSection = new HashMap<>();
         while ((line = bufferedReader.readLine()) != null ) {
 
             final Matcher commentMatcher = COMMENT_LINE.matcher(line);
@@ -119,9 +778,7 @@ public class Ini {
             }
 
             if (line != null) {
-                line = line.replaceAll("[^\\\\]{1}#.+", "")
-                        .replaceAll("[^\\\\]{1};.+", "")
-                        .replaceAll("\\\\([;#]{1})", "$1");
+                line = stripInlineComments(line);
             }
 
             if (StringUtils.isEmpty(line)) {
@@ -131,7 +788,7 @@ public class Ini {
             final Matcher keyValueMatcher = KEY_VALUE_PATTER.matcher(line);
             if (keyValueMatcher.matches()) {
                 key = keyValueMatcher.group(1).trim();
-                String value = handleEscapedAndSpecialCharacters(keyValueMatcher.group(2).trim()).replaceAll("\\\\$", "\n");
+                String value = handleEscapedAndSpecialCharactersWithPatterns(keyValueMatcher.group(2).trim()).replaceAll("\\\\$", "\n");
                 multilineValue = value;
                 if (line.endsWith("\\")) {
                     continue;
@@ -145,33 +802,265 @@ public class Ini {
 
 
             if (StringUtils.isNotEmpty(key)) {
-                Object normalizedValue = normalizeValue(multilineValue);
-
-                if (String.class.isInstance(normalizedValue) && line.contains("${")) {
-                    StringSubstitutor substitutor = stringStringSubstitutorPerSection.computeIfAbsent(
-                            section.getValue(), s -> {
-                                StringSubstitutor stringSubstitutor = new StringSubstitutor(
-                                        new DelegateMapWrapper(variables, getMapForSection(section)));
-                                stringSubstitutor.setEnableSubstitutionInVariables(true);
-                                return stringSubstitutor;
-                            });
-
-                    normalizedValue = substitutor.replace(normalizedValue.toString());
-                }
-
-                getMapForSection(section).put(key, normalizedValue);
+                putParsedValue(section, key, multilineValue, line.contains("${"), measurement);
             }
             key = null;
             multilineValue = null;
         }
     }
 
+    private void putParsedValue(final MutableObject<String> section, final String key, final String value,
+                                final boolean hasVariables, final LoadMeasurement measurement) {
+        if (measurement != null) {
+            measurement.entry(section.getValue());
+        }
+        if (!hasVariables) {
+            getMapForSection(section).put(deduplicate(key), parsedValue(value, measurement));
+            return;
+        }
+
+        final long start = measurement != null ? System.nanoTime() : 0;
+        Object normalizedValue = normalizeValue(value);
+        if (measurement != null) {
+            measurement.normalized(start);
+        }
+
+        if (String.class.isInstance(normalizedValue) && hasVariables) {
+            VariableTemplate template = VariableTemplate.compile(normalizedValue.toString());
+            if (crossSectionReferences) {
+                template = withEarlierDefinition(template, section.getValue(), key,
+                        getMapForSection(section).get(key));
+            }
+            if (crossSectionReferences && template.hasReferences()) {
+                normalizedValue = new UnresolvedValue(template, template.text());
+            } else {
+                final long substituteStart = measurement != null ? System.nanoTime() : 0;
+                normalizedValue = template.resolve(VariableTemplate.withEnvironment(getMapForSection(section)));
+                if (measurement != null) {
+                    measurement.substituted(substituteStart, 1);
+                }
+            }
+        }
+
+        getMapForSection(section).put(deduplicate(key), deduplicateValue(normalizedValue));
+    }
+
+    /**
+     * @return the value as it is stored for a value without references
+     */
+    private Object parsedValue(final String value, final LoadMeasurement measurement) {
+        final long start = measurement != null ? System.nanoTime() : 0;
+        final Object parsed;
+        if (lazyValueConversion) {
+            final String text = (String) deduplicateValue(value);
+            parsed = mayBeNumber(text) ? new LazyValue(text) : text;
+        } else {
+            parsed = deduplicateValue(normalizeValue(value));
+        }
+        if (measurement != null) {
+            measurement.normalized(start);
+        }
+        return parsed;
+    }
+
     private Map<String, Object> getMapForSection(final MutableObject<String> section) {
-        return resultMap.computeIfAbsent(
-                section.getValue(), s1 -> new LinkedHashMap<>());
+        final Map<String, Object> map = resultMap.get(section.getValue());
+        if (map != null) {
+            return map;
+        }
+        final Map<String, Object> created = newSectionMap();
+        resultMap.put(deduplicate(section.getValue()), created);
+        return created;
+    }
+
+    /**
+     * @return an empty map for the entries of a section; a {@link CompactMap} when deduplicating
+     */
+    Map<String, Object> newSectionMap() {
+        return deduplication ? new CompactMap<>() : new LinkedHashMap<>();
+    }
+
+    /**
+     * @param entries the entries of a section
+     * @return a modifiable copy of the entries; a {@link CompactMap} when deduplicating
+     */
+    Map<String, Object> copySectionMap(final Map<String, Object> entries) {
+        return deduplication ? new CompactMap<>(entries) : new LinkedHashMap<>(entries);
+    }
+
+    /**
+     * @param string a section name or key
+     * @return the pooled instance of the string when deduplicating, the string itself otherwise
+     */
+    private String deduplicate(final String string) {
+        return deduplication ? StringPool.SHARED.intern(string) : string;
+    }
+
+    /**
+     * @param value a value as it is stored
+     * @return the pooled instance of the value when deduplicating and it is a short string, the value itself
+     * otherwise
+     */
+    private Object deduplicateValue(final Object value) {
+        if (deduplication && value instanceof String && ((String) value).length() <= MAX_DEDUPLICATED_VALUE_LENGTH) {
+            return StringPool.SHARED.intern((String) value);
+        }
+        return value;
+    }
+
+    /**
+     * @return the sections as they are stored; values may still be {@link LazyValue}s.
+     */
+    Map<String, Map<String, Object>> rawSections() {
+        return resultMap;
+    }
+
+    /**
+     * @param section the desired section
+     * @return the section as it is stored, null if not found; values may still be {@link LazyValue}s.
+     */
+    Map<String, Object> sectionMap(final String section) {
+        return resultMap.get(section);
+    }
+
+    static String stripInlineComments(final String line) {
+        return line.replaceAll("[^\\\\]{1}#.+", "")
+                .replaceAll("[^\\\\]{1};.+", "")
+                .replaceAll("\\\\([;#]{1})", "$1");
+    }
+
+    /**
+     * replace a trailing backslash with a newline, the same way {@code string.replaceAll("\\\\$", "\n")} does.
+     */
+    static String replaceTrailingBackslash(final String string) {
+        final int length = string.length();
+        int backslash = -1;
+        if (length >= 1 && string.charAt(length - 1) == '\\') {
+            backslash = length - 1;
+        } else if (length >= 3 && string.charAt(length - 1) == '\n' && string.charAt(length - 2) == '\r'
+                && string.charAt(length - 3) == '\\') {
+            backslash = length - 3;
+        } else if (length >= 2 && isLineTerminator(string.charAt(length - 1))
+                && string.charAt(length - 2) == '\\') {
+            backslash = length - 2;
+        }
+        if (backslash < 0) {
+            return string;
+        }
+        return string.substring(0, backslash) + "\n" + string.substring(backslash + 1);
+    }
+
+    private static boolean isLineTerminator(final char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    /**
+     * strip surrounding quotes and decode escape sequences in a single pass.  The result is the same as applying the
+     * replacements of {@link #handleEscapedAndSpecialCharactersWithPatterns(String)} one after the other, including
+     * the way an escaped backslash combines with the character after it.
+     */
+    static String handleEscapedAndSpecialCharacters(final String string) {
+        final int length = string.length();
+        boolean special = false;
+        for (int i = 0; i < length; i++) {
+            final char c = string.charAt(i);
+            if (c == '\\' || c == '"' || c == '\'') {
+                special = true;
+            } else if (isLineTerminator(c)) {
+                return handleEscapedAndSpecialCharactersWithPatterns(string);
+            }
+        }
+        if (!special) {
+            return string;
+        }
+
+        int start = 0;
+        int end = length;
+        if (end - start >= 2 && string.charAt(start) == '"' && string.charAt(end - 1) == '"') {
+            start++;
+            end--;
+        }
+        if (end - start >= 2 && string.charAt(start) == '\'' && string.charAt(end - 1) == '\'') {
+            start++;
+            end--;
+        }
+        final int firstBackslash = string.indexOf('\\', start);
+        if (firstBackslash < 0 || firstBackslash >= end) {
+            return string.substring(start, end);
+        }
+
+        final StringBuilder result = new StringBuilder(end - start);
+        result.append(string, start, firstBackslash);
+        boolean pendingBackslash = false;
+        int i = firstBackslash;
+        while (i < end) {
+            char c = string.charAt(i);
+            if (c != '\\') {
+                i++;
+            } else {
+                final char next = i + 1 < end ? string.charAt(i + 1) : 0;
+                if (next == '"' || next == '\'') {
+                    c = next;
+                    i += 2;
+                } else if (next == '\\' && !(i + 2 < end && isQuote(string.charAt(i + 2)))) {
+                    i += 2;
+                } else {
+                    i++;
+                }
+            }
+
+            if (pendingBackslash) {
+                pendingBackslash = false;
+                final char decoded = decodeEscapedCharacter(c);
+                if (decoded != 0 || c == '0') {
+                    result.append(decoded);
+                    continue;
+                }
+                result.append('\\');
+            }
+            if (c == '\\') {
+                pendingBackslash = true;
+            } else {
+                result.append(c);
+            }
+        }
+        if (pendingBackslash) {
+            result.append('\\');
+        }
+        return result.toString();
+    }
+
+    private static boolean isQuote(final char c) {
+        return c == '"' || c == '\'';
     }
 
-    private String handleEscapedAndSpecialCharacters(final String string) {
+    /**
+     * @return the character that a backslash followed by c stands for, 0 if it is not an escape sequence.
+     */
+    private static char decodeEscapedCharacter(final char c) {
+        switch (c) {
+            case 't':
+                return '\t';
+            case 'r':
+                return '\r';
+            case 'n':
+                return '\n';
+            case '0':
+                return '\0';
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            case '#':
+            case '=':
+            case ':':
+                return c;
+            default:
+                return 0;
+        }
+    }
+
+    static String handleEscapedAndSpecialCharactersWithPatterns(final String string) {
         return string.replaceAll("^\"(.*)\"$", "$1")
                 .replaceAll("^'(.*)'$", "$1")
                 .replaceAll("\\\\\"", "\"")
@@ -188,10 +1077,21 @@ public class Ini {
                 .replaceAll("\\\\:", ":");
     }
 
-    private Object normalizeValue(final String value) {
+    /**
+     * @return false if {@link #normalizeValue(String)} is certain to return the value itself
+     */
+    private static boolean mayBeNumber(final String value) {
+        if (value.isEmpty()) {
+            return false;
+        }
+        final char first = value.charAt(0);
+        return (first >= '0' && first <= '9') || first == '-' || first == '+' || first == '.';
+    }
+
+    static Object normalizeValue(final String value) {
         if (NumberUtils.isCreatable(value)) {
             try {
-                return NumberFormat.getInstance().parse(value);
+                return NUMBER_FORMAT.get().parse(value);
             } catch (ParseException e) {
                 return value;
             }
@@ -206,7 +1106,8 @@ public class Ini {
      * @return true if the section and section key exists, false otherwise
      */
     public boolean hasKey(final String section, final String key) {
-        return (resultMap.containsKey(section) && resultMap.get(section).containsKey(key));
+        final Map<String, Object> map = sectionMap(section);
+        return (map != null && map.containsKey(key));
     }
     
     /**
@@ -228,43 +1129,136 @@ public class Ini {
      * @return the value from the nested structure and cast it to the specified type.
      */
     public <T> T getValue(final String section, final String key, final Class<T> type) {
-        return cast(resultMap.getOrDefault(section, new LinkedHashMap<>()).get(key), type);
+        return convert(storedValue(section, key), type);
     }
 
-    @SuppressWarnings("unchecked")
-    private <T> T cast(final Object o, final Class<T> type) {
-        if (o == null) {
-            return null;
+    private <T> T convert(final Object value, final Class<T> type) {
+        if (value instanceof LazyValue) {
+            return ((LazyValue) value).get(type, converterRegistry);
+        }
+        return converterRegistry.convert(LazyValue.resolve(value), type);
+    }
+
+    /**
+     * get a handle to a key that looks the key up and converts its value once, and again only after this ini has
+     * changed.  Use it for keys that are read over and over.
+     * @param section the section
+     * @param key the key in the section
+     * @param type the type to convert the value to
+     * @param <T> the generic for the type
+     * @return the handle
+     */
+    public <T> IniKey<T> handle(final String section, final String key, final Class<T> type) {
+        KeyHandles handles = keyHandles;
+        if (handles == null) {
+            synchronized (this) {
+                handles = keyHandles;
+                if (handles == null) {
+                    handles = new IniKeyHandles();
+                    keyHandles = handles;
+                }
+            }
+        }
+        return handles.handle(section, key, type);
+    }
+
+    /**
+     * clear the results of the handles of this ini; called after every change.
+     */
+    void invalidateKeys() {
+        final KeyHandles handles = keyHandles;
+        if (handles != null) {
+            handles.invalidate();
+        }
+    }
+
+    /**
+     * the handles of this ini, which look keys up in its sections.
+     */
+    private final class IniKeyHandles extends KeyHandles {
+        @Override
+        Object resolve(final String section, final String key, final Class<?> type) {
+            final Map<String, Object> map = sectionMap(section);
+            if (map == null || !map.containsKey(key)) {
+                return MISSING;
+            }
+            return convert(map.get(key), type);
         }
-        if (type.isInstance(o)) {
-            return (T) o;
-        } else if (String.class.equals(type)) {
-            return (T) o.toString();
-        } else if (o != null && ClassUtils.isPrimitiveWrapper(o.getClass())
-                && o.getClass().equals(ClassUtils.primitiveToWrapper(type))) {
-            return (T) o;
-        } else if (Number.class.isInstance(o)) {
-            if (Long.class.isAssignableFrom(type) || long.class.isAssignableFrom(type)) {
-                return (T) (Long) ((Number)o).longValue();
-            } else if (Integer.class.isAssignableFrom(type) || int.class.isAssignableFrom(type)) {
-                return (T) (Integer) ((Number)o).intValue();
-            } else if (Double.class.isAssignableFrom(type) || double.class.isAssignableFrom(type)) {
-                return (T) (Double) ((Number)o).doubleValue();
-            } else if (Float.class.isAssignableFrom(type) || float.class.isAssignableFrom(type)) {
-                return (T) (Float) ((Number)o).floatValue();
-            } else if (Short.class.isAssignableFrom(type) || short.class.isAssignableFrom(type)) {
-                return (T) (Short) ((Number)o).shortValue();
-            } else if (Byte.class.isAssignableFrom(type) || byte.class.isAssignableFrom(type)) {
-                return (T) (Byte) ((Number) o).byteValue();
+
+        @Override
+        void read(final String section, final String key, final boolean found) {
+            if (metrics != IniMetrics.NOOP) {
+                metrics.valueRead(section, key, found);
             }
-        } else if (o != null && (Boolean.class.isAssignableFrom(type) || boolean.class.isAssignableFrom(type))) {
-            return (T) Boolean.valueOf(o.toString());
-        } else if (o != null && Character.class.isAssignableFrom(type)) {
-            return (T) Character.valueOf(o.toString().charAt(0));
-        } else if (o != null && char.class.isAssignableFrom(type)) {
-            return (T) Character.valueOf(o.toString().charAt(0));
         }
-        return (T) o;
+    }
+
+    /**
+     * return a value from the nested structure as an int without boxing it.  Numbers are
+     * narrowed like {@link Number#intValue()}; other values are converted with the {@link ConverterRegistry}.
+     * @param section the desired section
+     * @param key the key in the section
+     * @param defaultValue the value to return if the key does not exist
+     * @return the value as an int, or the default value
+     * @throws NumberFormatException if the value exists but is not a number
+     */
+    public int getInt(final String section, final String key, final int defaultValue) {
+        final Object value = storedValue(section, key);
+        return value != null ? LazyValue.intValue(value, converterRegistry) : defaultValue;
+    }
+
+    /**
+     * return a value from the nested structure as a long without boxing it.  Numbers are
+     * narrowed like {@link Number#longValue()}; other values are converted with the {@link ConverterRegistry}.
+     * @param section the desired section
+     * @param key the key in the section
+     * @param defaultValue the value to return if the key does not exist
+     * @return the value as a long, or the default value
+     * @throws NumberFormatException if the value exists but is not a number
+     */
+    public long getLong(final String section, final String key, final long defaultValue) {
+        final Object value = storedValue(section, key);
+        return value != null ? LazyValue.longValue(value, converterRegistry) : defaultValue;
+    }
+
+    /**
+     * return a value from the nested structure as a double without boxing it.  Numbers are
+     * converted like {@link Number#doubleValue()}; other values are converted with the {@link ConverterRegistry}.
+     * @param section the desired section
+     * @param key the key in the section
+     * @param defaultValue the value to return if the key does not exist
+     * @return the value as a double, or the default value
+     * @throws NumberFormatException if the value exists but is not a number
+     */
+    public double getDouble(final String section, final String key, final double defaultValue) {
+        final Object value = storedValue(section, key);
+        return value != null ? LazyValue.doubleValue(value, converterRegistry) : defaultValue;
+    }
+
+    /**
+     * return a value from the nested structure as a boolean without boxing it.  Booleans are unboxed; other values
+     * are converted with the {@link ConverterRegistry}.
+     * @param section the desired section
+     * @param key the key in the section
+     * @param defaultValue the value to return if the key does not exist
+     * @return the value as a boolean, or the default value
+     * @throws IllegalArgumentException if the value exists but is not a boolean
+     */
+    public boolean getBoolean(final String section, final String key, final boolean defaultValue) {
+        final Object value = storedValue(section, key);
+        return value != null ? LazyValue.booleanValue(value, converterRegistry) : defaultValue;
+    }
+
+    /**
+     * @return the value as it is stored, null if not found; the read is reported to the metrics
+     */
+    private Object storedValue(final String section, final String key) {
+        final Map<String, Object> sectionMap = firstNonNull(sectionMap(section), Collections.emptyMap());
+        final Object value = sectionMap.get(key);
+        if (metrics != IniMetrics.NOOP) {
+            metrics.valueRead(section, key, value != null || sectionMap.containsKey(key));
+        }
+        return value;
     }
 
     /**
@@ -272,7 +1266,7 @@ public class Ini {
      * @return the sections as a collection.
      */
     public Collection<String> getSections() {
-        return resultMap.keySet();
+        return rawSections().keySet();
     }
 
     /**
@@ -281,7 +1275,8 @@ public class Ini {
      * @return the keys for a section or an empty collection.
      */
     public Collection<String> getKeys(final String section) {
-        return resultMap.getOrDefault(section, new LinkedHashMap<>()).keySet();
+        final Map<String, Object> map = sectionMap(section);
+        return map != null ? map.keySet() : Collections.emptySet();
     }
 
     /**
@@ -290,11 +1285,11 @@ public class Ini {
      * @return null if not found
      */
     public Map<String, Object> getSection(final String section) {
-        Map<String, Object> map = resultMap.get(section);
+        Map<String, Object> map = sectionMap(section);
         if (map == null) {
             return null;
         }
-        return Collections.unmodifiableMap(map);
+        return new ResolvedSectionMap(map);
     }
     /**
      * return the section as a map; sorted by key
@@ -302,11 +1297,11 @@ public class Ini {
      * @return null if not found
      */
     public Map<String, Object> getSectionSortedByKey(final String section) {
-        Map<String, Object> map = resultMap.get(section);
+        Map<String, Object> map = sectionMap(section);
         if (map == null) {
             return null;
         }
-        return Collections.unmodifiableMap(new TreeMap<>(map));
+        return Collections.unmodifiableMap(new TreeMap<>(new ResolvedSectionMap(map)));
     }
 
 
@@ -329,8 +1324,8 @@ public class Ini {
      */
     public Map<String, Object> getSectionWithKeysThatMatchFunction(final String section,
                                                        final Predicate<Map.Entry<String, Object>> filter) {
-        final Map<String, Object> stringObjectMap = firstNonNull(resultMap.get(section), new LinkedHashMap<>());
-        return stringObjectMap.entrySet().stream()
+        final Map<String, Object> stringObjectMap = firstNonNull(sectionMap(section), Collections.emptyMap());
+        return new ResolvedSectionMap(stringObjectMap).entrySet().stream()
                 .filter(map -> filter.test(map))
                 .collect(Collectors.toMap(map -> map.getKey(), map -> map.getValue()));
     }
@@ -354,7 +1349,8 @@ public class Ini {
      * @param value the value to store for that key
      */
     public void putValue(final String section, final String key, final Object value) {
-        resultMap.computeIfAbsent(section, s -> new LinkedHashMap<>()).put(key, value);
+        resultMap.computeIfAbsent(section, s -> newSectionMap()).put(key, value);
+        invalidateKeys();
     }
 
     /**
@@ -362,7 +1358,8 @@ public class Ini {
      * @param sectionEntries
      */
     public void putValues(final String sectionKey, Map<String, Object> sectionEntries) {
-        resultMap.computeIfAbsent(sectionKey, s -> new LinkedHashMap<>()).putAll(sectionEntries);
+        resultMap.computeIfAbsent(sectionKey, s -> newSectionMap()).putAll(sectionEntries);
+        invalidateKeys();
     }
 
     /**
@@ -370,49 +1367,56 @@ public class Ini {
      * @param outputStream the outputstream to write to
      * @param comments the comments to put at the top of the file
      * @throws IOException if there is an error writing to the outputstream
+     * @throws IllegalArgumentException if a value has a backslash that cannot be written so that it is read back
      */
     public void store(final OutputStream outputStream, final String comments) throws IOException {
         store(new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8)),
                 comments);
     }
 
+    /**
+     * store the ini to an outputstream
+     * @param outputStream the outputstream to write to
+     * @param comments the comments to put at the top of the file
+     * @param options the formatting options
+     * @throws IOException if there is an error writing to the outputstream
+     * @throws IllegalArgumentException if a value has a backslash that cannot be written so that it is read back
+     */
+    public void store(final OutputStream outputStream, final String comments, final StoreOptions options)
+            throws IOException {
+        store(new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8)),
+                comments, options);
+    }
+
     /**
      * store the ini to a writer
      * @param writer the writer to use
      * @param comments commments to put at the top of the file.
      * @throws IOException if there is an error writing to the writer
+     * @throws IllegalArgumentException if a value has a backslash that cannot be written so that it is read back
      */
     public void store(final Writer writer, final String comments) throws IOException {
-        try (BufferedWriter bufferedWriter = (writer instanceof BufferedWriter)
-                ? (BufferedWriter) writer : new BufferedWriter(writer)) {
-            doStore(bufferedWriter, comments);
-        }
-    }
-
-    private void doStore(final BufferedWriter bufferedWriter, final String comments) throws IOException {
-        writeComments(bufferedWriter, comments);
-        for (Map.Entry<String, Map<String, Object>> section : resultMap.entrySet()) {
-            bufferedWriter.write("[" + section.getKey() + "]");
-            bufferedWriter.newLine();
-            for (Map.Entry<String, Object> sectionEntry : section.getValue().entrySet()) {
-                bufferedWriter.write(sectionEntry.getKey() + " = ");
-                bufferedWriter.write(sectionEntry.getValue().toString());
-                bufferedWriter.newLine();
-            }
-            bufferedWriter.newLine();
-        }
+        store(writer, comments, new StoreOptions());
     }
 
-    private static void writeComments(final BufferedWriter bw, final String comments)
-            throws IOException {
-        if (StringUtils.isNotEmpty(comments)) {
-            try (BufferedReader bufferedReader = new BufferedReader(new StringReader(comments))) {
-                String line = null;
-                while((line = bufferedReader.readLine()) != null) {
-                    bw.write("#");
-                    IOUtils.write(line, bw);
-                    bw.newLine();
-                }
+    /**
+     * store the ini to a writer.  Values are escaped so that loading the result gives them back.  With
+     * {@link #setPreserveFormatting(boolean)} enabled, the last file loaded is written back with its own comments
+     * and formatting and the comments argument is not used.
+     * @param writer the writer to use
+     * @param comments commments to put at the top of the file.
+     * @param options the formatting options
+     * @throws IOException if there is an error writing to the writer
+     * @throws IllegalArgumentException if a value has a backslash that cannot be written so that it is read back
+     */
+    public void store(final Writer writer, final String comments, final StoreOptions options) throws IOException {
+        try (BufferedWriter bufferedWriter = (writer instanceof BufferedWriter)
+                ? (BufferedWriter) writer : new BufferedWriter(writer)) {
+            final IniDocument loadedDocument = document;
+            if (loadedDocument != null && loadedDocument.canWrite(rawSections())) {
+                loadedDocument.write(rawSections(), bufferedWriter, options);
+            } else {
+                IniWriter.write(rawSections(), bufferedWriter, comments, options);
             }
         }
     }
@@ -425,7 +1429,9 @@ public class Ini {
      * @return the previous value associated with key, or null if there was no mapping for key.
      */
     public Map<String, Object> removeSection(final String section) {
-        return resultMap.remove(section);
+        final Map<String, Object> removed = resultMap.remove(section);
+        invalidateKeys();
+        return ResolvedSectionMap.resolveAll(removed);
     }
 
     /**
@@ -436,6 +1442,12 @@ public class Ini {
      * @return the previous value associated with key, or null if there was no mapping for key.
      */
     public Object removeSectionKey(final String section, final String key) {
-        return resultMap.getOrDefault(section, new LinkedHashMap<>()).remove(key);
+        final Map<String, Object> map = resultMap.get(section);
+        if (map == null) {
+            return null;
+        }
+        final Object removed = map.remove(key);
+        invalidateKeys();
+        return LazyValue.resolve(removed);
     }
 }
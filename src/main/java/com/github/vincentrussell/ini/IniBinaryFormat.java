@@ -0,0 +1,277 @@
+package com.github.vincentrussell.ini;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The binary form of the sections of an {@link Ini}, written by {@link Ini#storeBinary(OutputStream)}.
+ *
+ * <pre>
+ * magic          "INIB"
+ * version        byte
+ * string count   varint, then every string as a varint byte length and its UTF-8 bytes
+ * section count  varint, then per section the string index of its name, its entry count and the offset of its
+ *                first entry in the entry block, all varints
+ * entry block    varint byte length, then per entry the string index of the key, a tag byte and the value
+ * </pre>
+ *
+ * Section names, keys and text values are written once in the string table and referred to by index.  The tag
+ * keeps the type of a value, so the numbers and strings that loading produces come back as the same types, and
+ * values that are converted lazily stay lazy.  Values of other types are written as their text, like
+ * {@link Ini#store(OutputStream, String)} does.
+ */
+final class IniBinaryFormat {
+
+    static final int VERSION = 1;
+
+    static final int NULL = 0;
+    static final int STRING = 1;
+    static final int LAZY = 2;
+    static final int UNRESOLVED = 3;
+    static final int LONG = 4;
+    static final int DOUBLE = 5;
+    static final int INTEGER = 6;
+    static final int FLOAT = 7;
+    static final int SHORT = 8;
+    static final int BYTE = 9;
+    static final int BOOLEAN = 10;
+    static final int CHARACTER = 11;
+    static final int BIG_INTEGER = 12;
+    static final int BIG_DECIMAL = 13;
+
+    private static final byte[] MAGIC = {'I', 'N', 'I', 'B'};
+
+    private IniBinaryFormat() {
+
+    }
+
+    /**
+     * write sections in the binary form.
+     * @param sections the sections as they are stored
+     * @param outputStream the stream to write to; it is not closed
+     * @throws IOException if there is an error writing to the stream
+     */
+    static void write(final Map<String, Map<String, Object>> sections, final OutputStream outputStream)
+            throws IOException {
+        final StringTable strings = new StringTable();
+        final ByteArrayOutputStream entryBytes = new ByteArrayOutputStream();
+        final DataOutputStream entries = new DataOutputStream(entryBytes);
+        final List<int[]> index = new ArrayList<>(sections.size());
+        for (Map.Entry<String, Map<String, Object>> section : sections.entrySet()) {
+            index.add(new int[] {strings.indexOf(section.getKey()), section.getValue().size(), entries.size()});
+            for (Map.Entry<String, Object> entry : section.getValue().entrySet()) {
+                writeVarInt(entries, strings.indexOf(entry.getKey()));
+                writeValue(entries, strings, entry.getValue());
+            }
+        }
+        entries.flush();
+
+        final DataOutputStream output = new DataOutputStream(outputStream);
+        output.write(MAGIC);
+        output.writeByte(VERSION);
+        writeVarInt(output, strings.strings.size());
+        for (String string : strings.strings) {
+            final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(output, bytes.length);
+            output.write(bytes);
+        }
+        writeVarInt(output, index.size());
+        for (int[] section : index) {
+            writeVarInt(output, section[0]);
+            writeVarInt(output, section[1]);
+            writeVarInt(output, section[2]);
+        }
+        writeVarInt(output, entryBytes.size());
+        entryBytes.writeTo(output);
+        output.flush();
+    }
+
+    /**
+     * read sections written by {@link #write(Map, OutputStream)}.
+     * @param inputStream the stream to read from; it is not closed
+     * @return the sections as they are stored
+     * @throws IOException if the stream cannot be read or does not hold a binary ini of this version
+     */
+    static Map<String, Map<String, Object>> read(final InputStream inputStream) throws IOException {
+        final DataInputStream input = new DataInputStream(inputStream);
+        final byte[] magic = new byte[MAGIC.length];
+        input.readFully(magic);
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (magic[i] != MAGIC[i]) {
+                throw new IOException("not a binary ini");
+            }
+        }
+        final int version = input.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("unsupported binary ini version " + version);
+        }
+        final String[] strings = new String[readVarInt(input)];
+        byte[] buffer = new byte[64];
+        for (int i = 0; i < strings.length; i++) {
+            final int length = readVarInt(input);
+            if (length > buffer.length) {
+                buffer = new byte[Math.max(length, buffer.length * 2)];
+            }
+            input.readFully(buffer, 0, length);
+            strings[i] = new String(buffer, 0, length, StandardCharsets.UTF_8);
+        }
+        final int[][] index = new int[readVarInt(input)][];
+        for (int i = 0; i < index.length; i++) {
+            index[i] = new int[] {readVarInt(input), readVarInt(input), readVarInt(input)};
+        }
+        final byte[] entryBlock = new byte[readVarInt(input)];
+        input.readFully(entryBlock);
+
+        final Map<String, Map<String, Object>> sections = new LinkedHashMap<>(index.length * 2);
+        for (int[] section : index) {
+            final DataInputStream entries = new DataInputStream(new ByteArrayInputStream(entryBlock,
+                    section[2], entryBlock.length - section[2]));
+            final Map<String, Object> map = new LinkedHashMap<>(section[1] * 2);
+            for (int i = 0; i < section[1]; i++) {
+                final String key = strings[readVarInt(entries)];
+                map.put(key, readValue(entries, strings));
+            }
+            sections.put(strings[section[0]], map);
+        }
+        return sections;
+    }
+
+    private static void writeValue(final DataOutputStream output, final StringTable strings, final Object value)
+            throws IOException {
+        if (value == null) {
+            output.writeByte(NULL);
+        } else if (value instanceof String) {
+            output.writeByte(STRING);
+            writeVarInt(output, strings.indexOf((String) value));
+        } else if (value instanceof LazyValue) {
+            output.writeByte(LAZY);
+            writeVarInt(output, strings.indexOf(((LazyValue) value).raw()));
+        } else if (value instanceof UnresolvedValue) {
+            output.writeByte(UNRESOLVED);
+            writeVarInt(output, strings.indexOf(((UnresolvedValue) value).template().text()));
+            writeVarInt(output, strings.indexOf(value.toString()));
+        } else if (value instanceof Long) {
+            output.writeByte(LONG);
+            output.writeLong((Long) value);
+        } else if (value instanceof Double) {
+            output.writeByte(DOUBLE);
+            output.writeDouble((Double) value);
+        } else if (value instanceof Integer) {
+            output.writeByte(INTEGER);
+            output.writeInt((Integer) value);
+        } else if (value instanceof Float) {
+            output.writeByte(FLOAT);
+            output.writeFloat((Float) value);
+        } else if (value instanceof Short) {
+            output.writeByte(SHORT);
+            output.writeShort((Short) value);
+        } else if (value instanceof Byte) {
+            output.writeByte(BYTE);
+            output.writeByte((Byte) value);
+        } else if (value instanceof Boolean) {
+            output.writeByte(BOOLEAN);
+            output.writeBoolean((Boolean) value);
+        } else if (value instanceof Character) {
+            output.writeByte(CHARACTER);
+            output.writeChar((Character) value);
+        } else if (value instanceof BigInteger) {
+            output.writeByte(BIG_INTEGER);
+            writeVarInt(output, strings.indexOf(value.toString()));
+        } else if (value instanceof BigDecimal) {
+            output.writeByte(BIG_DECIMAL);
+            writeVarInt(output, strings.indexOf(value.toString()));
+        } else {
+            output.writeByte(STRING);
+            writeVarInt(output, strings.indexOf(value.toString()));
+        }
+    }
+
+    private static Object readValue(final DataInputStream input, final String[] strings) throws IOException {
+        final int tag = input.readUnsignedByte();
+        switch (tag) {
+            case NULL:
+                return null;
+            case STRING:
+                return strings[readVarInt(input)];
+            case LAZY:
+                return new LazyValue(strings[readVarInt(input)]);
+            case UNRESOLVED:
+                return new UnresolvedValue(VariableTemplate.compile(strings[readVarInt(input)]),
+                        strings[readVarInt(input)]);
+            case LONG:
+                return input.readLong();
+            case DOUBLE:
+                return input.readDouble();
+            case INTEGER:
+                return input.readInt();
+            case FLOAT:
+                return input.readFloat();
+            case SHORT:
+                return input.readShort();
+            case BYTE:
+                return input.readByte();
+            case BOOLEAN:
+                return input.readBoolean();
+            case CHARACTER:
+                return input.readChar();
+            case BIG_INTEGER:
+                return new BigInteger(strings[readVarInt(input)]);
+            case BIG_DECIMAL:
+                return new BigDecimal(strings[readVarInt(input)]);
+            default:
+                throw new IOException("unknown value tag " + tag);
+        }
+    }
+
+    private static void writeVarInt(final DataOutputStream output, final int value) throws IOException {
+        int remaining = value;
+        while ((remaining & ~0x7F) != 0) {
+            output.writeByte((remaining & 0x7F) | 0x80);
+            remaining >>>= 7;
+        }
+        output.writeByte(remaining);
+    }
+
+    private static int readVarInt(final DataInputStream input) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            final int b = input.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("malformed varint");
+    }
+
+    /**
+     * the strings of a binary ini in order of first use.
+     */
+    private static final class StringTable {
+        private final List<String> strings = new ArrayList<>();
+        private final Map<String, Integer> indexes = new HashMap<>();
+
+        private int indexOf(final String string) {
+            final Integer index = indexes.get(string);
+            if (index != null) {
+                return index;
+            }
+            indexes.put(string, strings.size());
+            strings.add(string);
+            return strings.size() - 1;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.github.vincentrussell.ini;
+
+import java.nio.file.Path;
+
+/**
+ * Receives the changes that an {@link IniWatcher} finds after an ini file has been written.
+ */
+@FunctionalInterface
+public interface IniChangeListener {
+
+    /**
+     * called after a changed file has been loaded and published.
+     * @param ini the reloaded ini; {@link ReloadableIni#snapshot()} returns the new version
+     * @param diff the sections and keys that were added, removed or changed
+     */
+    void changed(ReloadableIni ini, IniDiff diff);
+
+    /**
+     * called when a changed file cannot be loaded, because it cannot be read or because it is not a valid ini file.
+     * The previous version stays in place.
+     * @param path the ini file
+     * @param e the error, an {@link java.io.IOException} or a {@link RuntimeException}
+     */
+    default void reloadFailed(Path path, Exception e) {
+
+    }
+}
@@ -0,0 +1,237 @@
+package com.github.vincentrussell.ini;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * The sections and keys that were added, removed or changed between two versions of an ini file.
+ *
+ * Sections that appear in both versions are first compared by size and by a 64 bit hash of their content; only
+ * sections whose hashes differ are compared key by key.  The hash of an {@link IniSnapshot} section is computed once
+ * and kept with the snapshot, so comparing each reload with the previous one only hashes the new version.
+ *
+ * <pre>
+ * IniDiff diff = IniDiff.compute(previous, current);
+ * for (String section : diff.getChangedSections()) {
+ *     Set&lt;String&gt; keys = diff.getChangedKeys(section);
+ * }
+ * </pre>
+ */
+public final class IniDiff {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final Set<String> addedSections = new LinkedHashSet<>();
+    private final Set<String> removedSections = new LinkedHashSet<>();
+    private final Set<String> changedSections = new LinkedHashSet<>();
+    private final Map<String, Set<String>> addedKeys = new LinkedHashMap<>();
+    private final Map<String, Set<String>> removedKeys = new LinkedHashMap<>();
+    private final Map<String, Set<String>> changedKeys = new LinkedHashMap<>();
+
+    private IniDiff() {
+
+    }
+
+    /**
+     * compare two versions of an ini.
+     * @param before the old version
+     * @param after the new version
+     * @return the differences
+     */
+    public static IniDiff compute(final Ini before, final Ini after) {
+        return compute(before.rawSections(), after.rawSections());
+    }
+
+    /**
+     * compare two snapshots of an ini.
+     * @param before the old version
+     * @param after the new version
+     * @return the differences
+     */
+    public static IniDiff compute(final IniSnapshot before, final IniSnapshot after) {
+        return compute(before.rawSections(), after.rawSections());
+    }
+
+    private static IniDiff compute(final Map<String, Map<String, Object>> before,
+                                   final Map<String, Map<String, Object>> after) {
+        final IniDiff diff = new IniDiff();
+        for (Map.Entry<String, Map<String, Object>> section : after.entrySet()) {
+            final Map<String, Object> oldValues = before.get(section.getKey());
+            final Map<String, Object> newValues = section.getValue();
+            if (oldValues == null) {
+                diff.addedSections.add(section.getKey());
+                diff.addedKeys.put(section.getKey(), keys(newValues));
+            } else if (oldValues != newValues && (oldValues.size() != newValues.size()
+                    || contentHash(oldValues) != contentHash(newValues))) {
+                diff.compareSection(section.getKey(), oldValues, newValues);
+            }
+        }
+        for (Map.Entry<String, Map<String, Object>> section : before.entrySet()) {
+            if (!after.containsKey(section.getKey())) {
+                diff.removedSections.add(section.getKey());
+                diff.removedKeys.put(section.getKey(), keys(section.getValue()));
+            }
+        }
+        return diff;
+    }
+
+    private void compareSection(final String section, final Map<String, Object> oldValues,
+                                final Map<String, Object> newValues) {
+        final Set<String> added = new LinkedHashSet<>();
+        final Set<String> changed = new LinkedHashSet<>();
+        final Set<String> removed = new LinkedHashSet<>();
+        for (Map.Entry<String, Object> entry : newValues.entrySet()) {
+            final Object oldValue = oldValues.get(entry.getKey());
+            if (oldValue == null && !oldValues.containsKey(entry.getKey())) {
+                added.add(entry.getKey());
+            } else if (!valueEquals(oldValue, entry.getValue())) {
+                changed.add(entry.getKey());
+            }
+        }
+        for (String key : oldValues.keySet()) {
+            if (!newValues.containsKey(key)) {
+                removed.add(key);
+            }
+        }
+        if (!added.isEmpty() || !changed.isEmpty() || !removed.isEmpty()) {
+            changedSections.add(section);
+            addedKeys.put(section, Collections.unmodifiableSet(added));
+            changedKeys.put(section, Collections.unmodifiableSet(changed));
+            removedKeys.put(section, Collections.unmodifiableSet(removed));
+        }
+    }
+
+    private static Set<String> keys(final Map<String, Object> section) {
+        return Collections.unmodifiableSet(new LinkedHashSet<>(section.keySet()));
+    }
+
+    private static boolean valueEquals(final Object oldValue, final Object newValue) {
+        if (oldValue == newValue) {
+            return true;
+        }
+        if (oldValue instanceof LazyValue && newValue instanceof LazyValue
+                && ((LazyValue) oldValue).raw().equals(((LazyValue) newValue).raw())) {
+            return true;
+        }
+        return Objects.equals(LazyValue.resolve(oldValue), LazyValue.resolve(newValue));
+    }
+
+    /**
+     * a hash of the keys and values of a section that does not depend on their order.  Values are hashed by their
+     * text, so values that are still {@link LazyValue}s are not converted.
+     */
+    @SuppressWarnings("unchecked")
+    static long contentHash(final Map<String, Object> section) {
+        if (section instanceof FrozenMap) {
+            return ((FrozenMap<Object>) section).contentHash();
+        }
+        return computeContentHash(section);
+    }
+
+    static long computeContentHash(final Map<String, Object> section) {
+        long hash = section.size();
+        for (Map.Entry<String, Object> entry : section.entrySet()) {
+            final Object value = entry.getValue();
+            final String text = value instanceof LazyValue ? ((LazyValue) value).raw() : String.valueOf(value);
+            hash += mix(fnv(fnv(FNV_OFFSET_BASIS, entry.getKey()) * FNV_PRIME, text));
+        }
+        return hash;
+    }
+
+    private static long fnv(final long basis, final String text) {
+        long hash = basis;
+        for (int i = 0; i < text.length(); i++) {
+            hash ^= text.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private static long mix(final long value) {
+        long hash = value;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+
+    /**
+     * @return true if both versions have the same sections, keys and values
+     */
+    public boolean isEmpty() {
+        return addedSections.isEmpty() && removedSections.isEmpty() && changedSections.isEmpty();
+    }
+
+    /**
+     * @return the sections that only exist in the new version
+     */
+    public Set<String> getAddedSections() {
+        return Collections.unmodifiableSet(addedSections);
+    }
+
+    /**
+     * @return the sections that only exist in the old version
+     */
+    public Set<String> getRemovedSections() {
+        return Collections.unmodifiableSet(removedSections);
+    }
+
+    /**
+     * @return the sections that exist in both versions but have added, removed or changed keys
+     */
+    public Set<String> getChangedSections() {
+        return Collections.unmodifiableSet(changedSections);
+    }
+
+    /**
+     * @param section the desired section
+     * @return the keys that only exist in the new version of the section; every key of an added section
+     */
+    public Set<String> getAddedKeys(final String section) {
+        return addedKeys.getOrDefault(section, Collections.emptySet());
+    }
+
+    /**
+     * @param section the desired section
+     * @return the keys that only exist in the old version of the section; every key of a removed section
+     */
+    public Set<String> getRemovedKeys(final String section) {
+        return removedKeys.getOrDefault(section, Collections.emptySet());
+    }
+
+    /**
+     * @param section the desired section
+     * @return the keys whose value is different in the new version of the section
+     */
+    public Set<String> getChangedKeys(final String section) {
+        return changedKeys.getOrDefault(section, Collections.emptySet());
+    }
+
+    /**
+     * @return every added, removed or changed key, by section
+     */
+    public Map<String, Set<String>> getAffectedKeys() {
+        final Map<String, Set<String>> affected = new LinkedHashMap<>();
+        for (Map<String, Set<String>> keys : Arrays.asList(addedKeys, changedKeys, removedKeys)) {
+            for (Map.Entry<String, Set<String>> section : keys.entrySet()) {
+                if (!section.getValue().isEmpty()) {
+                    affected.computeIfAbsent(section.getKey(), s -> new LinkedHashSet<>()).addAll(section.getValue());
+                }
+            }
+        }
+        return affected;
+    }
+
+    @Override
+    public String toString() {
+        return "IniDiff{addedSections=" + addedSections + ", removedSections=" + removedSections
+                + ", addedKeys=" + addedKeys + ", changedKeys=" + changedKeys + ", removedKeys=" + removedKeys + "}";
+    }
+}
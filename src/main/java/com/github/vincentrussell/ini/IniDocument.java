@@ -0,0 +1,378 @@
+package com.github.vincentrussell.ini;
+
+import org.apache.commons.io.input.CharSequenceReader;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * The text of an ini file as it was loaded, kept so that {@link Ini#store(java.io.Writer, String, StoreOptions)} can
+ * write the file back with its comments, blank lines and formatting.  The text is split into blocks of whole lines:
+ * section headers, entries (the line of a key and its continuation lines) and everything else.
+ *
+ * Storing copies every block as it is, except that an entry whose value changed since loading is rewritten as a
+ * single line that keeps the key, the separator and any comment at the end of the line, entries and sections that
+ * were removed are left out, new keys are added after the last entry of their section and new sections are added
+ * at the end.
+ */
+final class IniDocument {
+
+    private static final int TEXT = 0;
+    private static final int SECTION = 1;
+    private static final int ENTRY = 2;
+
+    private final String text;
+    private final int[] lineStarts;
+    private final String lineSeparator;
+    private final List<Block> blocks;
+    private final boolean cutOff;
+    /** the index of the last header or entry of every section, after which new keys of the section go */
+    private final Map<String, Integer> anchors = new HashMap<>();
+    private final Map<String, Set<String>> keys = new HashMap<>();
+    private final Set<String> loadedSections = new HashSet<>();
+
+    private IniDocument(final String text, final int[] lineStarts, final List<Block> blocks, final boolean cutOff) {
+        this.text = text;
+        this.cutOff = cutOff;
+        this.lineStarts = lineStarts;
+        this.blocks = blocks;
+        this.lineSeparator = firstLineSeparator(text);
+    }
+
+    /**
+     * split the text of an ini file into blocks.
+     * @param text the text of the ini file
+     * @param sections the sections as they are stored right after loading the text
+     * @return the document
+     * @throws IOException never, the text is read from memory
+     */
+    static IniDocument parse(final String text, final Map<String, Map<String, Object>> sections) throws IOException {
+        final int[] lineStarts = lineStarts(text);
+        final int lineCount = lineStarts.length - 1;
+        final List<Block> blocks = new ArrayList<>();
+        final IniTokenizer tokenizer = new IniTokenizer(new CharSequenceReader(text));
+        String section = Ini.NO_SECTION;
+        boolean cutOff = false;
+        int next = 0;
+        IniTokenizer.Token token;
+        while ((token = tokenizer.next()) != IniTokenizer.Token.END) {
+            if (token == IniTokenizer.Token.SECTION) {
+                cutOff |= tokenizer.hasPendingValue();
+                section = tokenizer.section();
+                next = add(blocks, next, new Block(SECTION, section, null, tokenizer.lastLine(),
+                        tokenizer.lastLine() + 1));
+            } else if (token == IniTokenizer.Token.KEY_VALUE) {
+                final Block entry = new Block(ENTRY, section, tokenizer.key(), Math.max(next, tokenizer.firstLine()),
+                        tokenizer.lastLine() + 1);
+                entry.split = entry.firstLine != tokenizer.firstLine();
+                cutOff |= tokenizer.interruptsValue();
+                next = add(blocks, next, entry);
+            }
+        }
+        if (next < lineCount) {
+            blocks.add(new Block(TEXT, section, null, next, lineCount));
+        }
+
+        final IniDocument document = new IniDocument(text, lineStarts, blocks,
+                cutOff || tokenizer.hasPendingValue());
+        for (int i = blocks.size() - 1; i >= 0; i--) {
+            final Block block = blocks.get(i);
+            if (block.kind != TEXT) {
+                document.anchors.putIfAbsent(block.section, i);
+            }
+            if (block.kind == ENTRY) {
+                document.loadedSections.add(block.section);
+                if (document.keys.computeIfAbsent(block.section, s -> new HashSet<>()).add(block.key)) {
+                    final Map<String, Object> entries = sections.get(block.section);
+                    block.effective = true;
+                    block.loaded = entries != null ? entries.get(block.key) : null;
+                }
+            }
+        }
+        return document;
+    }
+
+    private static int add(final List<Block> blocks, final int next, final Block block) {
+        if (next < block.firstLine) {
+            blocks.add(new Block(TEXT, block.section, null, next, block.firstLine));
+        }
+        blocks.add(block);
+        return block.endLine;
+    }
+
+    /**
+     * A value whose continuation lines are cut off by a section header, by the line of another key or by the end of
+     * the text changes how the lines after it are read, so in such a document lines can only be written in place:
+     * values can change, except those that continue past a section header, but no entries can be added or removed.
+     * @param sections the sections as they are stored now
+     * @return false if the document has a value that is cut off and the sections cannot be written in place
+     */
+    boolean canWrite(final Map<String, Map<String, Object>> sections) {
+        if (!cutOff) {
+            return true;
+        }
+        for (Block block : blocks) {
+            if (block.kind == ENTRY) {
+                final Map<String, Object> entries = sections.get(block.section);
+                if (entries == null || !entries.containsKey(block.key)
+                        || block.split && block.effective && !isUnchanged(block.loaded, entries.get(block.key))) {
+                    return false;
+                }
+            }
+        }
+        for (Map.Entry<String, Map<String, Object>> section : sections.entrySet()) {
+            if (!keys.getOrDefault(section.getKey(), Collections.emptySet()).containsAll(section.getValue().keySet())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * write the document with the current contents of an ini.
+     * @param sections the sections as they are stored now
+     * @param writer the writer to write to
+     * @param options the formatting options for the lines that are added or rewritten
+     * @throws IOException if there is an error writing to the writer
+     */
+    void write(final Map<String, Map<String, Object>> sections, final BufferedWriter writer,
+               final StoreOptions options) throws IOException {
+        final IniWriter iniWriter = new IniWriter(writer, options, lineSeparator);
+        Map<String, Object> entries = sections.get(Ini.NO_SECTION);
+        boolean removed = entries == null && loadedSections.contains(Ini.NO_SECTION);
+        boolean atLineStart = true;
+        boolean blank = true;
+        for (int i = 0; i < blocks.size(); i++) {
+            final Block block = blocks.get(i);
+            if (block.kind == SECTION) {
+                entries = sections.get(block.section);
+                removed = entries == null && loadedSections.contains(block.section);
+            }
+            if (removed) {
+                continue;
+            }
+            if (block.kind != ENTRY) {
+                atLineStart = copy(writer, block);
+                blank = isBlank(block.endLine - 1);
+            } else if (entries.containsKey(block.key)) {
+                final Object value = entries.get(block.key);
+                if (block.effective && !isUnchanged(block.loaded, value)) {
+                    rewrite(writer, iniWriter, block, value);
+                    atLineStart = true;
+                } else {
+                    atLineStart = copy(writer, block);
+                }
+                blank = false;
+            }
+            if (block.kind != TEXT && entries != null && anchors.get(block.section) == i
+                    && hasNewKeys(block.section, entries)) {
+                if (!atLineStart) {
+                    writer.write(lineSeparator);
+                }
+                writeNewKeys(iniWriter, block.section, entries);
+                atLineStart = true;
+                blank = false;
+            }
+        }
+
+        for (Map.Entry<String, Map<String, Object>> section : iniWriter.sorted(sections).entrySet()) {
+            if (anchors.containsKey(section.getKey())) {
+                continue;
+            }
+            if (!atLineStart) {
+                writer.write(lineSeparator);
+                atLineStart = true;
+            }
+            if (!blank) {
+                writer.write(lineSeparator);
+                blank = true;
+            }
+            iniWriter.writeSection(section.getKey(), section.getValue());
+        }
+    }
+
+    private boolean hasNewKeys(final String section, final Map<String, Object> entries) {
+        final Set<String> existing = keys.getOrDefault(section, Collections.emptySet());
+        for (String key : entries.keySet()) {
+            if (!existing.contains(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void writeNewKeys(final IniWriter iniWriter, final String section, final Map<String, Object> entries)
+            throws IOException {
+        final Set<String> existing = keys.getOrDefault(section, Collections.emptySet());
+        for (Map.Entry<String, Object> entry : iniWriter.sorted(entries).entrySet()) {
+            if (!existing.contains(entry.getKey())) {
+                iniWriter.writeEntry(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * @return true if the block ends with a line terminator
+     */
+    private boolean copy(final BufferedWriter writer, final Block block) throws IOException {
+        final int start = lineStarts[block.firstLine];
+        final int end = lineStarts[block.endLine];
+        writer.write(text, start, end - start);
+        return end == 0 || isLineTerminator(text.charAt(end - 1));
+    }
+
+    /**
+     * write an entry as a single line with its new value, keeping the text up to the value and, for entries that
+     * span one line, the comment at the end of the line.
+     */
+    private void rewrite(final BufferedWriter writer, final IniWriter iniWriter, final Block block,
+                         final Object value) throws IOException {
+        final int start = lineStarts[block.firstLine];
+        final int end = lineEnd(block.firstLine);
+        final String line = text.substring(start, end);
+        final int commentStart = block.endLine - block.firstLine == 1 ? commentStart(line) : line.length();
+        int valueStart = line.indexOf('=') + 1;
+        while (valueStart < commentStart && (line.charAt(valueStart) == ' ' || line.charAt(valueStart) == '\t')) {
+            valueStart++;
+        }
+        writer.write(line, 0, Math.min(valueStart, commentStart));
+        iniWriter.writeValue(value);
+        writer.write(line, commentStart, line.length() - commentStart);
+        final int lastLine = block.endLine - 1;
+        final int terminatorStart = lineEnd(lastLine);
+        final String terminator = terminatorStart < lineStarts[block.endLine]
+                ? text.substring(terminatorStart, lineStarts[block.endLine]) : lineSeparator;
+        writer.write(terminator);
+    }
+
+    /**
+     * @return where the comment at the end of a line starts, following the rules of the tokenizer: the character
+     * before an unescaped comment marker is removed along with the comment.  Lines with the unicode line separators
+     * that the tokenizer hands to regular expressions are treated as having no comment.
+     */
+    private static int commentStart(final String line) {
+        for (int i = 0; i < line.length(); i++) {
+            final char c = line.charAt(i);
+            if (c == '\u0085' || c == '\u2028' || c == '\u2029') {
+                return line.length();
+            }
+        }
+        return commentStart(line, commentStart(line, line.length(), '#'), ';');
+    }
+
+    private static int commentStart(final String line, final int length, final char marker) {
+        for (int i = 0; i + 2 < length; i++) {
+            if (line.charAt(i) != '\\' && line.charAt(i + 1) == marker) {
+                return i;
+            }
+        }
+        return length;
+    }
+
+    private static boolean isUnchanged(final Object loaded, final Object current) {
+        return loaded == current || Objects.equals(loaded, current);
+    }
+
+    private boolean isBlank(final int line) {
+        for (int i = lineStarts[line]; i < lineEnd(line); i++) {
+            if (text.charAt(i) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the offset of the line terminator of a line, or of the end of the text for a last line without one
+     */
+    private int lineEnd(final int line) {
+        int end = lineStarts[line + 1];
+        if (end > lineStarts[line] && text.charAt(end - 1) == '\n') {
+            end--;
+        }
+        if (end > lineStarts[line] && text.charAt(end - 1) == '\r') {
+            end--;
+        }
+        return end;
+    }
+
+    /**
+     * @return the offset at which every line starts, the way the tokenizer splits lines, followed by the length of
+     * the text
+     */
+    private static int[] lineStarts(final String text) {
+        int[] starts = new int[16];
+        int count = 0;
+        int position = 0;
+        while (position < text.length()) {
+            if (count + 1 >= starts.length) {
+                final int[] grown = new int[starts.length * 2];
+                System.arraycopy(starts, 0, grown, 0, count);
+                starts = grown;
+            }
+            starts[count++] = position;
+            while (position < text.length() && !isLineTerminator(text.charAt(position))) {
+                position++;
+            }
+            if (position < text.length() && text.charAt(position) == '\r') {
+                position++;
+                if (position < text.length() && text.charAt(position) == '\n') {
+                    position++;
+                }
+            } else if (position < text.length()) {
+                position++;
+            }
+        }
+        final int[] result = new int[count + 1];
+        System.arraycopy(starts, 0, result, 0, count);
+        result[count] = text.length();
+        return result;
+    }
+
+    private static String firstLineSeparator(final String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                return "\n";
+            }
+            if (text.charAt(i) == '\r') {
+                return i + 1 < text.length() && text.charAt(i + 1) == '\n' ? "\r\n" : "\r";
+            }
+        }
+        return System.lineSeparator();
+    }
+
+    private static boolean isLineTerminator(final char c) {
+        return c == '\n' || c == '\r';
+    }
+
+    /**
+     * a run of whole lines, from {@link #firstLine} up to but not including {@link #endLine}.
+     */
+    private static final class Block {
+        private final int kind;
+        private final String section;
+        private final String key;
+        private final int firstLine;
+        private final int endLine;
+        private boolean split;
+        private boolean effective;
+        private Object loaded;
+
+        private Block(final int kind, final String section, final String key, final int firstLine,
+                      final int endLine) {
+            this.kind = kind;
+            this.section = section;
+            this.key = key;
+            this.firstLine = firstLine;
+            this.endLine = endLine;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.github.vincentrussell.ini;
+
+/**
+ * Callback interface for {@link Ini#parse(java.io.InputStream, IniHandler)}.  The ini file is pushed through the
+ * handler one entry at a time so that files of any size can be filtered or routed without building the whole
+ * structure in memory.
+ *
+ * Entries that appear before the first section header are reported without a surrounding
+ * {@link #startSection(String)}.
+ */
+public interface IniHandler {
+
+    /**
+     * called when a section header is read.
+     * @param section the trimmed section name
+     */
+    default void startSection(final String section) {
+
+    }
+
+    /**
+     * called for every key/value pair.  Quotes and escape sequences have already been handled; the value is not
+     * converted to a number and variables are not substituted.
+     * @param key the key
+     * @param value the value
+     */
+    default void keyValue(final String key, final String value) {
+
+    }
+
+    /**
+     * called for every comment line.
+     * @param comment the text of the comment without the leading comment character
+     */
+    default void comment(final String comment) {
+
+    }
+
+    /**
+     * called when a section ends; either because another section header is read or because the end of the file
+     * was reached.
+     * @param section the trimmed section name
+     */
+    default void endSection(final String section) {
+
+    }
+}
@@ -0,0 +1,125 @@
+package com.github.vincentrussell.ini;
+
+/**
+ * A handle to one key of an {@link Ini}, {@link ConcurrentIni} or {@link ReloadableIni}, created with
+ * {@link Ini#handle(String, String, Class)}.  The handle looks the key up and converts its value once and keeps the
+ * result, so reading it again is a single volatile read.  Changing the ini with
+ * {@link Ini#putValue(String, String, Object)} and the other methods that change it, loading into it or reloading it
+ * clears the result, and the next read looks the key up again.  Handles can be read from several threads when the
+ * ini they belong to can.
+ *
+ * <pre>
+ * IniKey&lt;Integer&gt; port = ini.handle("FTP", "FTPPort", Integer.class);
+ * int current = port.getOrDefault(21);
+ * </pre>
+ * @param <T> the type that the value is converted to
+ */
+public final class IniKey<T> {
+
+    private final String section;
+    private final String key;
+    private final Class<T> type;
+    private final KeyHandles handles;
+    private volatile Binding<T> binding;
+
+    IniKey(final String section, final String key, final Class<T> type, final KeyHandles handles) {
+        this.section = section;
+        this.key = key;
+        this.type = type;
+        this.handles = handles;
+    }
+
+    /**
+     * @return the section of the key
+     */
+    public String getSection() {
+        return section;
+    }
+
+    /**
+     * @return the key
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * @return the type that the value is converted to
+     */
+    public Class<T> getType() {
+        return type;
+    }
+
+    /**
+     * @return the value converted to the type, null if the key does not exist
+     */
+    public T get() {
+        return binding().value;
+    }
+
+    /**
+     * @param defaultValue the value to return if the key does not exist
+     * @return the value converted to the type, or the default value
+     */
+    public T getOrDefault(final T defaultValue) {
+        final Binding<T> current = binding();
+        return current.found ? current.value : defaultValue;
+    }
+
+    /**
+     * @return true if the key exists
+     */
+    public boolean exists() {
+        return binding().found;
+    }
+
+    private Binding<T> binding() {
+        Binding<T> current = binding;
+        if (current == null) {
+            current = bind();
+        }
+        handles.read(section, key, current.found);
+        return current;
+    }
+
+    /**
+     * look the key up and keep the result, unless the ini changed while it was looked up.
+     */
+    @SuppressWarnings("unchecked")
+    private Binding<T> bind() {
+        final long version = handles.version();
+        final Object value = handles.resolve(section, key, type);
+        final Binding<T> bound = value == KeyHandles.MISSING ? new Binding<>(null, false)
+                : new Binding<>((T) value, true);
+        binding = bound;
+        if (handles.version() != version) {
+            binding = null;
+        }
+        return bound;
+    }
+
+    /**
+     * forget the result so that the next read looks the key up again.
+     */
+    void unbind() {
+        binding = null;
+    }
+
+    @Override
+    public String toString() {
+        return "IniKey{" + section + "." + key + ", " + type.getName() + "}";
+    }
+
+    /**
+     * the value of the key at the time it was looked up.
+     */
+    private static final class Binding<T> {
+        private final T value;
+        private final boolean found;
+
+        private Binding(final T value, final boolean found) {
+            this.value = value;
+            this.found = found;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.github.vincentrussell.ini;
+
+/**
+ * The measurements of loading one ini file, passed to {@link IniMetrics#loaded(Ini, IniLoadStatistics)}.
+ *
+ * The time of a load is split into phases: normalizing is converting values to the form they are stored in,
+ * substituting is resolving <code>${}</code> references, and tokenizing is everything else, mostly reading the file
+ * and splitting it into sections, keys and values.  With {@link ParseMode#PARALLEL} values are normalized on several
+ * threads, so the normalizing time adds up the time of every thread and can be longer than the load itself.
+ */
+public final class IniLoadStatistics {
+
+    private final long bytes;
+    private final long lines;
+    private final long sections;
+    private final long keys;
+    private final long substitutions;
+    private final long totalNanos;
+    private final long normalizeNanos;
+    private final long substituteNanos;
+
+    IniLoadStatistics(final long bytes, final long lines, final long sections, final long keys,
+                      final long substitutions, final long totalNanos, final long normalizeNanos,
+                      final long substituteNanos) {
+        this.bytes = bytes;
+        this.lines = lines;
+        this.sections = sections;
+        this.keys = keys;
+        this.substitutions = substitutions;
+        this.totalNanos = totalNanos;
+        this.normalizeNanos = normalizeNanos;
+        this.substituteNanos = substituteNanos;
+    }
+
+    /**
+     * @return the number of bytes read
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return the number of lines read; zero when the file was loaded from a binary cache
+     */
+    public long getLines() {
+        return lines;
+    }
+
+    /**
+     * @return the number of sections that keys were loaded into
+     */
+    public long getSections() {
+        return sections;
+    }
+
+    /**
+     * @return the number of key/value pairs loaded, counting keys that appear more than once every time
+     */
+    public long getKeys() {
+        return keys;
+    }
+
+    /**
+     * @return the number of values with <code>${}</code> references that were resolved
+     */
+    public long getSubstitutions() {
+        return substitutions;
+    }
+
+    /**
+     * @return the time the whole load took in nanoseconds
+     */
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    /**
+     * @return the time spent reading and tokenizing in nanoseconds
+     */
+    public long getTokenizeNanos() {
+        return Math.max(0, totalNanos - normalizeNanos - substituteNanos);
+    }
+
+    /**
+     * @return the time spent converting values in nanoseconds
+     */
+    public long getNormalizeNanos() {
+        return normalizeNanos;
+    }
+
+    /**
+     * @return the time spent resolving <code>${}</code> references in nanoseconds
+     */
+    public long getSubstituteNanos() {
+        return substituteNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "IniLoadStatistics{bytes=" + bytes + ", lines=" + lines + ", sections=" + sections + ", keys=" + keys
+                + ", substitutions=" + substitutions + ", totalNanos=" + totalNanos + ", tokenizeNanos="
+                + getTokenizeNanos() + ", normalizeNanos=" + normalizeNanos + ", substituteNanos="
+                + substituteNanos + "}";
+    }
+}
@@ -0,0 +1,36 @@
+package com.github.vincentrussell.ini;
+
+/**
+ * Receives measurements of an {@link Ini}, set with {@link Ini#setMetrics(IniMetrics)}.  Nothing is measured while
+ * an ini uses {@link #NOOP}, the default.  {@link CountingIniMetrics} adds the measurements up and exposes them over
+ * JMX.
+ *
+ * Methods may be called from several threads at once, for example by {@link Ini#loadAll(java.util.Collection)}.
+ */
+public interface IniMetrics {
+
+    /**
+     * metrics that ignore everything.
+     */
+    IniMetrics NOOP = new IniMetrics() {
+    };
+
+    /**
+     * called after an ini file has been loaded.
+     * @param ini the ini that the file was loaded into
+     * @param statistics the measurements of the load
+     */
+    default void loaded(final Ini ini, final IniLoadStatistics statistics) {
+
+    }
+
+    /**
+     * called for every {@link Ini#getValue(String, String, Class)}.
+     * @param section the section
+     * @param key the key
+     * @param found true if the key exists in the section
+     */
+    default void valueRead(final String section, final String key, final boolean found) {
+
+    }
+}
@@ -0,0 +1,97 @@
+package com.github.vincentrussell.ini;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The JMX view of {@link CountingIniMetrics}.  Times are in nanoseconds; keys are named
+ * <code>section.key</code>.
+ */
+public interface IniMetricsMXBean {
+
+    /**
+     * @return the number of files loaded
+     */
+    long getLoads();
+
+    /**
+     * @return the number of bytes read by all loads
+     */
+    long getBytesRead();
+
+    /**
+     * @return the number of lines read by all loads
+     */
+    long getLinesRead();
+
+    /**
+     * @return the number of key/value pairs loaded by all loads
+     */
+    long getKeysLoaded();
+
+    /**
+     * @return the number of values with <code>${}</code> references resolved by all loads
+     */
+    long getSubstitutions();
+
+    /**
+     * @return the time spent loading
+     */
+    long getLoadNanos();
+
+    /**
+     * @return the time spent reading and tokenizing
+     */
+    long getTokenizeNanos();
+
+    /**
+     * @return the time spent converting values
+     */
+    long getNormalizeNanos();
+
+    /**
+     * @return the time spent resolving <code>${}</code> references
+     */
+    long getSubstituteNanos();
+
+    /**
+     * @return the time the slowest load took
+     */
+    long getSlowestLoadNanos();
+
+    /**
+     * @return the time the last load took
+     */
+    long getLastLoadNanos();
+
+    /**
+     * @return the number of values read that existed
+     */
+    long getHits();
+
+    /**
+     * @return the number of values read that did not exist
+     */
+    long getMisses();
+
+    /**
+     * @return the number of reads of every loaded key that existed when it was read
+     */
+    Map<String, Long> getKeyHits();
+
+    /**
+     * @return the number of reads of every loaded key that did not exist when it was read, for example because it
+     * had been removed; reads of keys that were never loaded only count towards {@link #getMisses()}
+     */
+    Map<String, Long> getKeyMisses();
+
+    /**
+     * @return the keys that have been loaded but never read
+     */
+    List<String> getUnreadKeys();
+
+    /**
+     * set every counter back to zero and forget the keys.
+     */
+    void reset();
+}
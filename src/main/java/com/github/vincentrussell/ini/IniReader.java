@@ -0,0 +1,274 @@
+package com.github.vincentrussell.ini;
+
+import java.io.Closeable;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Pull based cursor over the key/value entries of an ini file.  Nothing is decoded while moving the cursor: quotes,
+ * escape sequences, number conversion and variable substitution only happen when {@link #value()} is called for an
+ * entry, and {@link #skipSection()} moves past a whole section without building any of its keys or values.
+ *
+ * <pre>
+ * try (IniReader reader = new IniReader(new FileInputStream("samples/sample2.ini"))) {
+ *     while (reader.next()) {
+ *         if ("FTP".equals(reader.currentSection()) &amp;&amp; "FTPPort".equals(reader.currentKey())) {
+ *             Object port = reader.value();
+ *         }
+ *     }
+ * }
+ * </pre>
+ *
+ * {@link #value()} returns the same value that {@link Ini#load(InputStream)} would store for the entry.  To resolve
+ * <code>${}</code> references the reader keeps the undecoded entries of the sections that it has read; entries of
+ * skipped sections are not available to later references.
+ */
+public class IniReader implements Closeable {
+
+    private final Reader reader;
+    private final IniTokenizer tokenizer;
+    private final Map<String, Map<String, RawEntry>> sections = new HashMap<>();
+    private String section = Ini.NO_SECTION;
+    private RawEntry entry;
+    private int ordinal;
+
+    /**
+     * read an ini file from an {@link InputStream} using the default charset
+     * @param inputStream the ini file as an input stream
+     * @throws IOException thrown when the input stream is null
+     */
+    public IniReader(final InputStream inputStream) throws IOException {
+        this(inputStream, Charset.defaultCharset());
+    }
+
+    /**
+     * read an ini file from an {@link InputStream}
+     * @param inputStream the ini file as an input stream
+     * @param charset the charset of the ini file
+     * @throws IOException thrown when the input stream is null
+     */
+    public IniReader(final InputStream inputStream, final Charset charset) throws IOException {
+        if (inputStream == null) {
+            throw new FileNotFoundException("inputStream is null");
+        }
+        this.reader = new InputStreamReader(inputStream, charset);
+        this.tokenizer = new IniTokenizer(reader);
+    }
+
+    /**
+     * read an ini file from a {@link Reader}
+     * @param reader the ini file as a reader
+     */
+    public IniReader(final Reader reader) {
+        this.reader = reader;
+        this.tokenizer = new IniTokenizer(reader);
+    }
+
+    /**
+     * move the cursor to the next key/value entry.
+     * @return true if the cursor is on an entry, false at the end of the file
+     * @throws IOException thrown when there is an error reading the ini.
+     */
+    public boolean next() throws IOException {
+        IniTokenizer.Token token;
+        while ((token = tokenizer.next()) != IniTokenizer.Token.END) {
+            if (token == IniTokenizer.Token.SECTION) {
+                section = tokenizer.section();
+            } else if (token == IniTokenizer.Token.KEY_VALUE) {
+                final Map<String, RawEntry> entries = sections.computeIfAbsent(section, s -> new LinkedHashMap<>());
+                entry = new RawEntry(entries, tokenizer.key(), tokenizer.valueHead(), tokenizer.valueTail(),
+                        tokenizer.hasVariables(), ordinal++);
+                entry.previous = entries.put(entry.key, entry);
+                return true;
+            }
+        }
+        entry = null;
+        return false;
+    }
+
+    /**
+     * move the cursor past the rest of the current section.  The next call to {@link #next()} returns the first
+     * entry of the following section.
+     * @return true if there is a following section, false at the end of the file
+     * @throws IOException thrown when there is an error reading the ini.
+     */
+    public boolean skipSection() throws IOException {
+        entry = null;
+        if (tokenizer.skipSection() == IniTokenizer.Token.SECTION) {
+            section = tokenizer.section();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return the section of the current entry; entries before the first section header belong to the same
+     * section that {@link Ini} stores them in.
+     */
+    public String currentSection() {
+        return section;
+    }
+
+    /**
+     * @return the key of the current entry
+     */
+    public String currentKey() {
+        return currentEntry().key;
+    }
+
+    /**
+     * @return the value of the current entry as it is written in the file, continuation lines joined by newlines.
+     */
+    public String rawValue() {
+        final RawEntry current = currentEntry();
+        return current.tail.isEmpty() ? current.head : current.head + current.tail;
+    }
+
+    /**
+     * decode the value of the current entry the same way {@link Ini#load(InputStream)} does.
+     * @return the decoded value, either a {@link Number} or a {@link String}
+     */
+    public Object value() {
+        return resolve(currentEntry());
+    }
+
+    private RawEntry currentEntry() {
+        if (entry == null) {
+            throw new NoSuchElementException("the reader is not positioned on an entry");
+        }
+        return entry;
+    }
+
+    private Object resolve(final RawEntry target) {
+        if (!target.resolved) {
+            Object value = Ini.normalizeValue(IniTokenizer.decode(target.head, target.tail));
+            if (String.class.isInstance(value) && target.hasVariables) {
+                value = VariableTemplate.compile(value.toString()).resolve(
+                        VariableTemplate.withEnvironment(new SectionView(target.entries, target.ordinal)));
+            }
+            target.value = value;
+            target.resolved = true;
+        }
+        return target.value;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private static final class RawEntry {
+        private final Map<String, RawEntry> entries;
+        private final String key;
+        private final String head;
+        private final String tail;
+        private final boolean hasVariables;
+        private final int ordinal;
+        private RawEntry previous;
+        private boolean resolved;
+        private Object value;
+
+        private RawEntry(final Map<String, RawEntry> entries, final String key, final String head,
+                         final String tail, final boolean hasVariables, final int ordinal) {
+            this.entries = entries;
+            this.key = key;
+            this.head = head;
+            this.tail = tail;
+            this.hasVariables = hasVariables;
+            this.ordinal = ordinal;
+        }
+    }
+
+    /**
+     * the section as it was when the entry with the given ordinal was read; values are resolved on access.
+     */
+    private final class SectionView extends AbstractMap<String, Object> {
+        private final Map<String, RawEntry> entries;
+        private final int limit;
+
+        private SectionView(final Map<String, RawEntry> entries, final int limit) {
+            this.entries = entries;
+            this.limit = limit;
+        }
+
+        private RawEntry visible(final RawEntry latest) {
+            RawEntry candidate = latest;
+            while (candidate != null && candidate.ordinal >= limit) {
+                candidate = candidate.previous;
+            }
+            return candidate;
+        }
+
+        @Override
+        public boolean containsKey(final Object key) {
+            return visible(entries.get(key)) != null;
+        }
+
+        @Override
+        public Object get(final Object key) {
+            final RawEntry visible = visible(entries.get(key));
+            return visible == null ? null : resolve(visible);
+        }
+
+        @Override
+        public Set<Map.Entry<String, Object>> entrySet() {
+            return new AbstractSet<Map.Entry<String, Object>>() {
+                @Override
+                public Iterator<Map.Entry<String, Object>> iterator() {
+                    final Iterator<RawEntry> iterator = entries.values().iterator();
+                    return new Iterator<Map.Entry<String, Object>>() {
+                        private RawEntry next = advance();
+
+                        private RawEntry advance() {
+                            while (iterator.hasNext()) {
+                                final RawEntry visible = visible(iterator.next());
+                                if (visible != null) {
+                                    return visible;
+                                }
+                            }
+                            return null;
+                        }
+
+                        @Override
+                        public boolean hasNext() {
+                            return next != null;
+                        }
+
+                        @Override
+                        public Map.Entry<String, Object> next() {
+                            if (next == null) {
+                                throw new NoSuchElementException();
+                            }
+                            final RawEntry current = next;
+                            next = advance();
+                            return new SimpleImmutableEntry<>(current.key, resolve(current));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    int size = 0;
+                    for (RawEntry latest : entries.values()) {
+                        if (visible(latest) != null) {
+                            size++;
+                        }
+                    }
+                    return size;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.github.vincentrussell.ini;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.apache.commons.lang3.ObjectUtils.firstNonNull;
+
+/**
+ * An immutable copy of the sections of an {@link Ini}.  A snapshot never changes once it is created, so it can be
+ * shared between threads without locking and gives the same answer to every call.  Sections are stored in compact
+ * array backed maps.
+ *
+ * <pre>
+ * Ini ini = new Ini();
+ * ini.load(new FileInputStream("samples/sample2.ini"));
+ * IniSnapshot snapshot = ini.snapshot();
+ * </pre>
+ */
+public final class IniSnapshot {
+
+    private final Map<String, Map<String, Object>> sections;
+    private final ConverterRegistry converterRegistry;
+
+    IniSnapshot(final Map<String, Map<String, Object>> sections, final ConverterRegistry converterRegistry) {
+        final Map<String, Map<String, Object>> frozen = new LinkedHashMap<>();
+        for (Map.Entry<String, Map<String, Object>> section : sections.entrySet()) {
+            frozen.put(section.getKey(), new FrozenMap<>(section.getValue()));
+        }
+        this.sections = new FrozenMap<>(frozen);
+        this.converterRegistry = converterRegistry;
+    }
+
+    Map<String, Map<String, Object>> rawSections() {
+        return sections;
+    }
+
+    /**
+     * return true if the section and section key exists, false otherwise
+     * @param section the desired section
+     * @param key the key in the section
+     * @return true if the section and section key exists, false otherwise
+     */
+    public boolean hasKey(final String section, final String key) {
+        final Map<String, Object> map = sections.get(section);
+        return map != null && map.containsKey(key);
+    }
+
+    /**
+     * return a value from the nested structure as an object
+     * @param section the desired section
+     * @param key the desired key in the section
+     * @return the value from the nested structure
+     */
+    public Object getValue(final String section, final String key) {
+        return getValue(section, key, Object.class);
+    }
+
+    /**
+     * return a value from the nested structure and cast it to the specified type.
+     * @param section the desired section
+     * @param key the key in the section
+     * @param type the desired type
+     * @param <T> the generic for the type
+     * @return the value from the nested structure and cast it to the specified type.
+     */
+    public <T> T getValue(final String section, final String key, final Class<T> type) {
+        final Object value = firstNonNull(sections.get(section), Collections.emptyMap()).get(key);
+        if (value instanceof LazyValue) {
+            return ((LazyValue) value).get(type, converterRegistry);
+        }
+        return converterRegistry.convert(LazyValue.resolve(value), type);
+    }
+
+    /**
+     * return a value from the nested structure as an int without boxing it.  Numbers are
+     * narrowed like {@link Number#intValue()}; other values are converted with the {@link ConverterRegistry}.
+     * @param section the desired section
+     * @param key the key in the section
+     * @param defaultValue the value to return if the key does not exist
+     * @return the value as an int, or the default value
+     * @throws NumberFormatException if the value exists but is not a number
+     */
+    public int getInt(final String section, final String key, final int defaultValue) {
+        final Map<String, Object> map = sections.get(section);
+        final Object value = map != null ? map.get(key) : null;
+        return value != null ? LazyValue.intValue(value, converterRegistry) : defaultValue;
+    }
+
+    /**
+     * return a value from the nested structure as a long without boxing it.  Numbers are
+     * narrowed like {@link Number#longValue()}; other values are converted with the {@link ConverterRegistry}.
+     * @param section the desired section
+     * @param key the key in the section
+     * @param defaultValue the value to return if the key does not exist
+     * @return the value as a long, or the default value
+     * @throws NumberFormatException if the value exists but is not a number
+     */
+    public long getLong(final String section, final String key, final long defaultValue) {
+        final Map<String, Object> map = sections.get(section);
+        final Object value = map != null ? map.get(key) : null;
+        return value != null ? LazyValue.longValue(value, converterRegistry) : defaultValue;
+    }
+
+    /**
+     * return a value from the nested structure as a double without boxing it.  Numbers are
+     * converted like {@link Number#doubleValue()}; other values are converted with the {@link ConverterRegistry}.
+     * @param section the desired section
+     * @param key the key in the section
+     * @param defaultValue the value to return if the key does not exist
+     * @return the value as a double, or the default value
+     * @throws NumberFormatException if the value exists but is not a number
+     */
+    public double getDouble(final String section, final String key, final double defaultValue) {
+        final Map<String, Object> map = sections.get(section);
+        final Object value = map != null ? map.get(key) : null;
+        return value != null ? LazyValue.doubleValue(value, converterRegistry) : defaultValue;
+    }
+
+    /**
+     * return a value from the nested structure as a boolean without boxing it.  Booleans are unboxed; other values
+     * are converted with the {@link ConverterRegistry}.
+     * @param section the desired section
+     * @param key the key in the section
+     * @param defaultValue the value to return if the key does not exist
+     * @return the value as a boolean, or the default value
+     * @throws IllegalArgumentException if the value exists but is not a boolean
+     */
+    public boolean getBoolean(final String section, final String key, final boolean defaultValue) {
+        final Map<String, Object> map = sections.get(section);
+        final Object value = map != null ? map.get(key) : null;
+        return value != null ? LazyValue.booleanValue(value, converterRegistry) : defaultValue;
+    }
+
+    /**
+     * get the sections from the ini file.
+     * @return the sections as a collection.
+     */
+    public Collection<String> getSections() {
+        return sections.keySet();
+    }
+
+    /**
+     * get the keys from a particular section.
+     * @param section the desired section
+     * @return the keys for a section or an empty collection.
+     */
+    public Collection<String> getKeys(final String section) {
+        return firstNonNull(sections.get(section), Collections.<String, Object>emptyMap()).keySet();
+    }
+
+    /**
+     * return the section as a map.
+     * @param section the desired section
+     * @return null if not found
+     */
+    public Map<String, Object> getSection(final String section) {
+        final Map<String, Object> map = sections.get(section);
+        return map != null ? new ResolvedSectionMap(map) : null;
+    }
+
+    /**
+     * return the section as a map; sorted by key
+     * @param section the desired section
+     * @return null if not found
+     */
+    public Map<String, Object> getSectionSortedByKey(final String section) {
+        final Map<String, Object> map = sections.get(section);
+        return map != null ? Collections.unmodifiableMap(new TreeMap<>(new ResolvedSectionMap(map))) : null;
+    }
+
+    /**
+     * get a subset of a section where all the keys match the provided regex
+     * @param section the desired section
+     * @param regex that matches the key
+     * @return a subset of a section where all the keys match the regex
+     */
+    public Map<String, Object> getSectionWithKeysWithRegex(final String section, final String regex) {
+        final Pattern pattern = Pattern.compile(regex);
+        return new ResolvedSectionMap(firstNonNull(sections.get(section), Collections.emptyMap()))
+                .entrySet().stream()
+                .filter(entry -> pattern.matcher(entry.getKey()).matches())
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+    }
+
+    /**
+     * copy this snapshot into a new, modifiable {@link Ini}.
+     * @return the new ini
+     */
+    public Ini toIni() {
+        final Ini ini = new Ini();
+        ini.setConverterRegistry(converterRegistry);
+        for (Map.Entry<String, Map<String, Object>> section : sections.entrySet()) {
+            ini.putValues(section.getKey(), section.getValue());
+        }
+        return ini;
+    }
+}
@@ -0,0 +1,433 @@
+package com.github.vincentrussell.ini;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.regex.Matcher;
+
+/**
+ * Single pass, character level scanner that turns the contents of an ini file into section, comment and
+ * key/value tokens.  It follows the same rules as the pattern based parser in {@link Ini} (comment lines,
+ * section headers, inline comments, escaped comment characters and continuation lines) but classifies
+ * ordinary lines by walking their characters once instead of running regular expressions over them.
+ *
+ * Lines that contain one of the unicode line separators that {@link java.util.regex.Pattern} treats as line
+ * terminators (U+0085, U+2028 and U+2029) are handed to the original patterns so the result stays identical.
+ */
+final class IniTokenizer {
+
+    /**
+     * the kind of token returned by {@link #next()}
+     */
+    enum Token {
+        SECTION,
+        COMMENT,
+        KEY_VALUE,
+        END
+    }
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private boolean skipLineFeed;
+
+    private char[] line = new char[128];
+    private int lineLength;
+    private boolean lineHasPatternTerminator;
+    private int lines;
+
+    private String section;
+
+    private String pendingKey;
+    private int pendingFirstLine;
+    private boolean pendingInterrupts;
+    private String pendingHead;
+    private final StringBuilder pendingTail = new StringBuilder();
+
+    private String key;
+    private int firstLine;
+    private boolean interrupts;
+    private String valueHead;
+    private String valueTail;
+    private boolean hasVariables;
+
+    IniTokenizer(final Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * advance to the next token.
+     * @return the type of the token that the accessors now describe, {@link Token#END} when the input is exhausted.
+     * @throws IOException thrown when the underlying reader fails.
+     */
+    Token next() throws IOException {
+        while (readLine()) {
+            if (lineHasPatternTerminator) {
+                final Token token = nextFromPatterns(new String(line, 0, lineLength));
+                if (token != null) {
+                    return token;
+                }
+                continue;
+            }
+
+            if (lineLength > 0 && isCommentMarker(line[0])) {
+                return Token.COMMENT;
+            }
+
+            if (scanSection()) {
+                return Token.SECTION;
+            }
+
+            stripInlineComments();
+
+            if (lineLength == 0) {
+                continue;
+            }
+
+            final Token token = scanKeyValue();
+            if (token != null) {
+                return token;
+            }
+        }
+        return Token.END;
+    }
+
+    /**
+     * skip to the next section header without building keys or values.  An entry whose continuation lines run into
+     * the next section header is skipped as well.
+     * @return {@link Token#SECTION} when a section header was found, {@link Token#END} otherwise.
+     * @throws IOException thrown when the underlying reader fails.
+     */
+    Token skipSection() throws IOException {
+        pendingKey = null;
+        while (readLine()) {
+            if (lineHasPatternTerminator) {
+                final Matcher sectionMatcher = Ini.SECTION_PATTERN.matcher(new String(line, 0, lineLength));
+                if (sectionMatcher.matches()) {
+                    section = sectionMatcher.group(1).trim();
+                    return Token.SECTION;
+                }
+            } else if (scanSection()) {
+                return Token.SECTION;
+            }
+        }
+        return Token.END;
+    }
+
+    /**
+     * @return true if the last line read ends a key/value pair with a continuation, so the lines that follow may
+     * still add to its value.
+     */
+    boolean hasPendingValue() {
+        return pendingKey != null;
+    }
+
+    /**
+     * @return the trimmed section name of the last {@link Token#SECTION} token.
+     */
+    String section() {
+        return section;
+    }
+
+    /**
+     * @return the text of the current {@link Token#COMMENT} token without the leading comment character.
+     */
+    String comment() {
+        return new String(line, 1, lineLength - 1);
+    }
+
+    /**
+     * @return the key of the current {@link Token#KEY_VALUE} token.
+     */
+    String key() {
+        return key;
+    }
+
+    /**
+     * @return the zero based number of the line that holds the key of the current {@link Token#KEY_VALUE} token.
+     */
+    int firstLine() {
+        return firstLine;
+    }
+
+    /**
+     * @return true if the key line of the current {@link Token#KEY_VALUE} token cuts off the continuation lines of an
+     * earlier key, which is dropped.
+     */
+    boolean interruptsValue() {
+        return interrupts;
+    }
+
+    /**
+     * @return the zero based number of the last line read, which is the line that ends the current token.
+     */
+    int lastLine() {
+        return lines - 1;
+    }
+
+    /**
+     * @return the undecoded text of the value on the line that holds the key.
+     */
+    String valueHead() {
+        return valueHead;
+    }
+
+    /**
+     * @return the continuation lines of the value, already joined with newlines; empty for single line values.
+     */
+    String valueTail() {
+        return valueTail;
+    }
+
+    /**
+     * @return the value of the current {@link Token#KEY_VALUE} token as the text written in the file.
+     */
+    String rawValue() {
+        return valueTail.isEmpty() ? valueHead : valueHead + valueTail;
+    }
+
+    /**
+     * @return the value of the current {@link Token#KEY_VALUE} token with quotes and escapes handled.
+     */
+    String value() {
+        return decode(valueHead, valueTail);
+    }
+
+    /**
+     * @return true if the last line of the current {@link Token#KEY_VALUE} token references a variable.
+     */
+    boolean hasVariables() {
+        return hasVariables;
+    }
+
+    /**
+     * decode the parts of a value returned by {@link #valueHead()} and {@link #valueTail()}.
+     * @param head the undecoded text on the line that holds the key
+     * @param tail the continuation lines
+     * @return the decoded value
+     */
+    static String decode(final String head, final String tail) {
+        final String decodedHead = Ini.replaceTrailingBackslash(Ini.handleEscapedAndSpecialCharacters(head));
+        return tail.isEmpty() ? decodedHead : decodedHead + tail;
+    }
+
+    private Token nextFromPatterns(final String text) {
+        if (Ini.COMMENT_LINE.matcher(text).matches()) {
+            return Token.COMMENT;
+        }
+
+        final Matcher sectionMatcher = Ini.SECTION_PATTERN.matcher(text);
+        if (sectionMatcher.matches()) {
+            section = sectionMatcher.group(1).trim();
+            return Token.SECTION;
+        }
+
+        final String stripped = Ini.stripInlineComments(text);
+        if (stripped.isEmpty()) {
+            return null;
+        }
+
+        final boolean continued = stripped.endsWith("\\");
+        final Matcher keyValueMatcher = Ini.KEY_VALUE_PATTER.matcher(stripped);
+        if (keyValueMatcher.matches()) {
+            pendingInterrupts = pendingKey != null;
+            pendingKey = keyValueMatcher.group(1).trim();
+            pendingFirstLine = lines - 1;
+            pendingHead = keyValueMatcher.group(2).trim();
+            pendingTail.setLength(0);
+            if (continued) {
+                return null;
+            }
+        } else if (pendingKey == null) {
+            return null;
+        } else {
+            pendingTail.append(Ini.replaceTrailingBackslash(stripped));
+            if (continued) {
+                return null;
+            }
+        }
+        return emit(stripped.contains("${"));
+    }
+
+    private boolean scanSection() {
+        int start = 0;
+        while (start < lineLength && isPatternWhitespace(line[start])) {
+            start++;
+        }
+        if (start == lineLength || line[start] != '[') {
+            return false;
+        }
+        int close = start + 1;
+        while (close < lineLength && line[close] != ']') {
+            close++;
+        }
+        if (close == lineLength) {
+            return false;
+        }
+        for (int i = close + 1; i < lineLength; i++) {
+            if (!isPatternWhitespace(line[i])) {
+                return false;
+            }
+        }
+        section = trimmedString(start + 1, close);
+        return true;
+    }
+
+    private void stripInlineComments() {
+        lineLength = inlineCommentStart(lineLength, '#');
+        lineLength = inlineCommentStart(lineLength, ';');
+        int write = 0;
+        for (int read = 0; read < lineLength; read++) {
+            char c = line[read];
+            if (c == '\\' && read + 1 < lineLength && (line[read + 1] == ';' || line[read + 1] == '#')) {
+                c = line[++read];
+            }
+            line[write++] = c;
+        }
+        lineLength = write;
+    }
+
+    /**
+     * an inline comment starts at the character before an unescaped comment marker that has text after it; that
+     * character is removed along with the comment.
+     */
+    private int inlineCommentStart(final int length, final char marker) {
+        for (int i = 0; i + 2 < length; i++) {
+            if (line[i] != '\\' && line[i + 1] == marker) {
+                return i;
+            }
+        }
+        return length;
+    }
+
+    private Token scanKeyValue() {
+        final boolean continued = line[lineLength - 1] == '\\';
+        int equals = -1;
+        for (int i = 0; i < lineLength; i++) {
+            if (line[i] == '=') {
+                equals = i;
+                break;
+            }
+        }
+
+        if (equals >= 0) {
+            pendingInterrupts = pendingKey != null;
+            pendingKey = trimmedString(0, equals);
+            pendingFirstLine = lines - 1;
+            pendingHead = trimmedString(equals + 1, lineLength);
+            pendingTail.setLength(0);
+            if (continued) {
+                return null;
+            }
+        } else if (pendingKey == null) {
+            return null;
+        } else {
+            if (continued) {
+                pendingTail.append(line, 0, lineLength - 1).append('\n');
+                return null;
+            }
+            pendingTail.append(line, 0, lineLength);
+        }
+        return emit(containsVariable());
+    }
+
+    private Token emit(final boolean variables) {
+        final String emittedKey = pendingKey;
+        pendingKey = null;
+        if (emittedKey.isEmpty()) {
+            return null;
+        }
+        key = emittedKey;
+        firstLine = pendingFirstLine;
+        interrupts = pendingInterrupts;
+        valueHead = pendingHead;
+        valueTail = pendingTail.length() == 0 ? "" : pendingTail.toString();
+        hasVariables = variables;
+        return Token.KEY_VALUE;
+    }
+
+    private boolean containsVariable() {
+        for (int i = 0; i + 1 < lineLength; i++) {
+            if (line[i] == '$' && line[i + 1] == '{') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String trimmedString(final int from, final int to) {
+        int start = from;
+        int end = to;
+        while (start < end && line[start] <= ' ') {
+            start++;
+        }
+        while (end > start && line[end - 1] <= ' ') {
+            end--;
+        }
+        return new String(line, start, end - start);
+    }
+
+    /**
+     * read the next line into {@link #line} following the rules of {@link java.io.BufferedReader#readLine()}.
+     */
+    private boolean readLine() throws IOException {
+        lineLength = 0;
+        lineHasPatternTerminator = false;
+        boolean read = false;
+        while (true) {
+            if (position >= limit) {
+                limit = reader.read(buffer, 0, BUFFER_SIZE);
+                position = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    if (read) {
+                        lines++;
+                    }
+                    return read;
+                }
+            }
+            if (skipLineFeed) {
+                skipLineFeed = false;
+                if (buffer[position] == '\n') {
+                    position++;
+                    continue;
+                }
+            }
+            read = true;
+            while (position < limit) {
+                final char c = buffer[position++];
+                if (c == '\n') {
+                    lines++;
+                    return true;
+                }
+                if (c == '\r') {
+                    skipLineFeed = true;
+                    lines++;
+                    return true;
+                }
+                if (c == '\u0085' || c == '\u2028' || c == '\u2029') {
+                    lineHasPatternTerminator = true;
+                }
+                if (lineLength == line.length) {
+                    final char[] grown = new char[line.length * 2];
+                    System.arraycopy(line, 0, grown, 0, lineLength);
+                    line = grown;
+                }
+                line[lineLength++] = c;
+            }
+        }
+    }
+
+    private static boolean isCommentMarker(final char c) {
+        return c == ';' || c == '|' || c == '#';
+    }
+
+    /**
+     * the characters matched by \s in {@link java.util.regex.Pattern}.
+     */
+    private static boolean isPatternWhitespace(final char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+}
@@ -0,0 +1,210 @@
+package com.github.vincentrussell.ini;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reloads ini files when they are written instead of polling them.  Changes are reported by a {@link WatchService};
+ * a burst of writes to the same file only reloads it once, after the file has been quiet for the debounce delay, and
+ * a file whose content has not changed is not parsed again.  Listeners receive an {@link IniDiff} of the old and
+ * new version.
+ *
+ * <pre>
+ * IniWatcher watcher = new IniWatcher();
+ * ReloadableIni config = watcher.watch(Paths.get("samples/sample2.ini"));
+ * watcher.addListener((ini, diff) -&gt; System.out.println(diff.getAffectedKeys()));
+ * </pre>
+ */
+public class IniWatcher implements Closeable {
+
+    private static final long DEFAULT_DEBOUNCE_MILLIS = 200;
+
+    private final WatchService watchService;
+    private final ScheduledExecutorService scheduler;
+    private final long debounceMillis;
+    private final Map<Path, ReloadableIni> watched = new ConcurrentHashMap<>();
+    private final Map<Path, ScheduledFuture<?>> pending = new ConcurrentHashMap<>();
+    private final Map<Path, WatchKey> directories = new ConcurrentHashMap<>();
+    private final List<IniChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private final Thread watchThread;
+
+    /**
+     * create a watcher that waits 200 milliseconds after the last write before reloading a file.
+     * @throws IOException thrown when the watch service cannot be created.
+     */
+    public IniWatcher() throws IOException {
+        this(DEFAULT_DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * create a watcher.
+     * @param debounce how long a file has to be quiet before it is reloaded
+     * @param unit the unit of the debounce delay
+     * @throws IOException thrown when the watch service cannot be created.
+     */
+    public IniWatcher(final long debounce, final TimeUnit unit) throws IOException {
+        this.debounceMillis = unit.toMillis(debounce);
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "ini-watcher-reload");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.watchThread = new Thread(this::processEvents, "ini-watcher");
+        this.watchThread.setDaemon(true);
+        this.watchThread.start();
+    }
+
+    /**
+     * load an ini file encoded in UTF-8 and reload it whenever it changes.
+     * @param path the ini file
+     * @return the ini, which always holds the latest version of the file
+     * @throws IOException thrown when there is an error processing the ini.
+     */
+    public ReloadableIni watch(final Path path) throws IOException {
+        final ReloadableIni ini = new ReloadableIni(path);
+        watch(ini);
+        return ini;
+    }
+
+    /**
+     * reload an ini whenever its file changes.
+     * @param ini the ini
+     * @throws IOException thrown when the directory of the file cannot be watched.
+     */
+    public void watch(final ReloadableIni ini) throws IOException {
+        final Path path = ini.getPath().toAbsolutePath().normalize();
+        final Path directory = path.getParent();
+        synchronized (directories) {
+            if (!directories.containsKey(directory)) {
+                directories.put(directory, directory.register(watchService,
+                        StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY));
+            }
+        }
+        watched.put(path, ini);
+    }
+
+    /**
+     * stop reloading an ini file.
+     * @param path the ini file
+     */
+    public void unwatch(final Path path) {
+        final Path normalized = path.toAbsolutePath().normalize();
+        watched.remove(normalized);
+        final ScheduledFuture<?> future = pending.remove(normalized);
+        if (future != null) {
+            future.cancel(false);
+        }
+    }
+
+    /**
+     * @param listener the listener to notify after a file has been reloaded
+     */
+    public void addListener(final IniChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * @param listener the listener to remove
+     */
+    public void removeListener(final IniChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    private void processEvents() {
+        try {
+            while (true) {
+                final WatchKey key = watchService.take();
+                final Path directory = (Path) key.watchable();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        for (Path path : watched.keySet()) {
+                            if (path.getParent().equals(directory)) {
+                                schedule(path);
+                            }
+                        }
+                    } else {
+                        final Path path = directory.resolve((Path) event.context());
+                        if (watched.containsKey(path)) {
+                            schedule(path);
+                        }
+                    }
+                }
+                key.reset();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void schedule(final Path path) {
+        pending.compute(path, (p, previous) -> {
+            if (previous != null) {
+                previous.cancel(false);
+            }
+            return scheduler.schedule(() -> reload(path), debounceMillis, TimeUnit.MILLISECONDS);
+        });
+    }
+
+    private void reload(final Path path) {
+        final ReloadableIni ini = watched.get(path);
+        if (ini == null) {
+            return;
+        }
+        final IniSnapshot before = ini.snapshot();
+        final IniDiff diff;
+        try {
+            final IniSnapshot after = ini.reloadIfChanged();
+            if (after == null) {
+                return;
+            }
+            diff = IniDiff.compute(before, after);
+        } catch (IOException | RuntimeException e) {
+            for (IniChangeListener listener : listeners) {
+                notify(() -> listener.reloadFailed(path, e));
+            }
+            return;
+        }
+        if (diff.isEmpty()) {
+            return;
+        }
+        for (IniChangeListener listener : listeners) {
+            notify(() -> listener.changed(ini, diff));
+        }
+    }
+
+    /**
+     * call a listener so that an exception it throws neither stops the other listeners from being called nor kills
+     * the reload thread.  The exception is passed to the uncaught exception handler of the thread instead.
+     */
+    private static void notify(final Runnable call) {
+        try {
+            call.run();
+        } catch (RuntimeException e) {
+            final Thread thread = Thread.currentThread();
+            thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+        scheduler.shutdownNow();
+        watchThread.interrupt();
+    }
+}
@@ -0,0 +1,239 @@
+package com.github.vincentrussell.ini;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Writes the sections of an {@link Ini} as ini text, straight to a {@link BufferedWriter}.
+ *
+ * Values are escaped so that loading the text gives them back: newlines, carriage returns, quotes, backslashes and
+ * the comment characters <code>#</code> and <code>;</code> are written as escape sequences, <code>${</code> is
+ * written as <code>$${</code>, and values that start or end with whitespace are put in double quotes.  Numbers are
+ * written in plain notation, which is how they are read.  References that were left unresolved are written as they
+ * were read so they can be resolved when the text is loaded again.
+ *
+ * A backslash that is followed by one of the characters of an escape sequence, or that ends a value or its last line,
+ * cannot be written in a way that the parser reads back, so such values are rejected with an
+ * {@link IllegalArgumentException} instead of being written as a different value.
+ */
+final class IniWriter {
+
+    private static final String ESCAPED_CHARACTERS = "trn0bf#=:";
+
+    private final BufferedWriter writer;
+    private final StoreOptions options;
+    private final String lineSeparator;
+
+    /**
+     * @param writer the writer to write to
+     * @param options the formatting options
+     * @param lineSeparator the text that ends every line
+     */
+    IniWriter(final BufferedWriter writer, final StoreOptions options, final String lineSeparator) {
+        this.writer = writer;
+        this.options = options;
+        this.lineSeparator = lineSeparator;
+    }
+
+    /**
+     * write sections as ini text.
+     * @param sections the sections as they are stored
+     * @param writer the writer to write to
+     * @param comments the comments to put at the top of the file
+     * @param options the formatting options
+     * @throws IOException if there is an error writing to the writer
+     */
+    static void write(final Map<String, Map<String, Object>> sections, final BufferedWriter writer,
+                      final String comments, final StoreOptions options) throws IOException {
+        new IniWriter(writer, options, System.lineSeparator()).write(sections, comments);
+    }
+
+    private void write(final Map<String, Map<String, Object>> sections, final String comments) throws IOException {
+        writeComments(comments);
+        for (Map.Entry<String, Map<String, Object>> section : sorted(sections).entrySet()) {
+            writeSection(section.getKey(), section.getValue());
+        }
+    }
+
+    /**
+     * write a section header followed by the entries of the section and a blank line, unless the section is empty
+     * and the options leave out empty sections.
+     * @param name the name of the section
+     * @param entries the entries of the section as they are stored
+     * @throws IOException if there is an error writing to the writer
+     */
+    void writeSection(final String name, final Map<String, Object> entries) throws IOException {
+        if (options.isSkipEmptySections() && entries.isEmpty()) {
+            return;
+        }
+        writer.write('[');
+        writer.write(name);
+        writer.write(']');
+        newLine();
+        for (Map.Entry<String, Object> entry : sorted(entries).entrySet()) {
+            writeEntry(entry.getKey(), entry.getValue());
+        }
+        newLine();
+    }
+
+    /**
+     * write a line with a key, the separator and the escaped value.
+     * @param key the key
+     * @param value the value as it is stored
+     * @throws IOException if there is an error writing to the writer
+     * @throws IllegalArgumentException if the value cannot be written so that the parser reads it back
+     */
+    void writeEntry(final String key, final Object value) throws IOException {
+        writeKey(key);
+        writer.write(options.getSeparator());
+        writeValue(value);
+        newLine();
+    }
+
+    /**
+     * @param map a map of entries or sections
+     * @param <V> the type of the values
+     * @return the map in the order the options write it in
+     */
+    <V> Map<String, V> sorted(final Map<String, V> map) {
+        return options.isSorted() ? new TreeMap<>(map) : map;
+    }
+
+    private void writeComments(final String comments) throws IOException {
+        if (StringUtils.isEmpty(comments)) {
+            return;
+        }
+        int start = 0;
+        while (start < comments.length()) {
+            int end = start;
+            while (end < comments.length() && comments.charAt(end) != '\n' && comments.charAt(end) != '\r') {
+                end++;
+            }
+            writer.write('#');
+            writer.write(comments, start, end - start);
+            newLine();
+            if (end + 1 < comments.length() && comments.charAt(end) == '\r' && comments.charAt(end + 1) == '\n') {
+                end++;
+            }
+            start = end + 1;
+        }
+    }
+
+    private void writeKey(final String key) throws IOException {
+        for (int i = 0; i < key.length(); i++) {
+            final char c = key.charAt(i);
+            if (c == '#' || c == ';') {
+                writer.write('\\');
+            }
+            writer.write(c);
+        }
+    }
+
+    private void newLine() throws IOException {
+        writer.write(lineSeparator);
+    }
+
+    /**
+     * write a value escaped so that the parser reads it back.
+     * @param value the value as it is stored
+     * @throws IOException if there is an error writing to the writer
+     * @throws IllegalArgumentException if the value cannot be written so that the parser reads it back
+     */
+    void writeValue(final Object value) throws IOException {
+        final String text;
+        if (value instanceof UnresolvedValue) {
+            writeEscaped(((UnresolvedValue) value).template().text());
+            return;
+        } else if (value instanceof LazyValue) {
+            text = ((LazyValue) value).raw();
+        } else if (value instanceof Double && Double.isFinite((Double) value) && (Double) value != 0) {
+            text = BigDecimal.valueOf((Double) value).toPlainString();
+        } else if (value instanceof Float && Float.isFinite((Float) value) && (Float) value != 0) {
+            text = new BigDecimal(value.toString()).toPlainString();
+        } else if (value instanceof BigDecimal) {
+            text = ((BigDecimal) value).toPlainString();
+        } else {
+            text = String.valueOf(value);
+        }
+        writeEscaped(VariableTemplate.escape(text));
+    }
+
+    private void writeEscaped(final String text) throws IOException {
+        checkRepresentable(text);
+        final int length = text.length();
+        final boolean quoted = length > 0 && (text.charAt(0) <= ' ' || text.charAt(length - 1) <= ' ');
+        if (!quoted && !needsEscaping(text)) {
+            writer.write(text);
+            return;
+        }
+        if (quoted) {
+            writer.write('"');
+        }
+        int written = 0;
+        for (int i = 0; i < length; i++) {
+            final String escape = escape(text.charAt(i));
+            if (escape != null) {
+                writer.write(text, written, i - written);
+                writer.write(escape);
+                written = i + 1;
+            }
+        }
+        writer.write(text, written, length - written);
+        if (quoted) {
+            writer.write('"');
+        }
+    }
+
+    /**
+     * the parser reads a backslash before one of the characters of an escape sequence as that escape sequence, even
+     * if the backslash itself is escaped, and a backslash at the end of a value or of its last line as a line
+     * continuation.
+     * @param text the value as it would be written
+     * @throws IllegalArgumentException if the text has such a backslash
+     */
+    private static void checkRepresentable(final String text) {
+        for (int i = text.indexOf('\\'); i >= 0; i = text.indexOf('\\', i + 1)) {
+            final String rest = text.length() - i <= 3 ? text.substring(i + 1) : null;
+            if ("".equals(rest) || "\r".equals(rest) || "\n".equals(rest) || "\r\n".equals(rest)
+                    || ESCAPED_CHARACTERS.indexOf(text.charAt(i + 1)) >= 0) {
+                throw new IllegalArgumentException("the value \"" + text
+                        + "\" has a backslash that cannot be written so that it is read back");
+            }
+        }
+    }
+
+    private static boolean needsEscaping(final String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (escape(text.charAt(i)) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String escape(final char c) {
+        switch (c) {
+            case '\n':
+                return "\\n";
+            case '\r':
+                return "\\r";
+            case '"':
+                return "\\\"";
+            case '\'':
+                return "\\'";
+            case '\\':
+                return "\\\\";
+            case '#':
+                return "\\#";
+            case ';':
+                return "\\;";
+            default:
+                return null;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.github.vincentrussell.ini;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The {@link IniKey}s created for one ini.  Handles are held weakly, so handles that are no longer used are dropped.
+ * The ini calls {@link #invalidate()} after every change, which clears the result of every handle and counts a new
+ * version; a handle that was looked up while the version changed does not keep its result.
+ */
+abstract class KeyHandles {
+
+    /**
+     * returned by {@link #resolve(String, String, Class)} for keys that do not exist.
+     */
+    static final Object MISSING = new Object();
+
+    private final Set<IniKey<?>> handles = Collections.newSetFromMap(new WeakHashMap<>());
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * @param section the section
+     * @param key the key
+     * @param type the type that the value is converted to
+     * @param <T> the generic for the type
+     * @return a new handle
+     */
+    <T> IniKey<T> handle(final String section, final String key, final Class<T> type) {
+        final IniKey<T> handle = new IniKey<>(section, key, type, this);
+        synchronized (handles) {
+            handles.add(handle);
+        }
+        return handle;
+    }
+
+    /**
+     * clear the result of every handle.
+     */
+    void invalidate() {
+        version.incrementAndGet();
+        synchronized (handles) {
+            for (IniKey<?> handle : handles) {
+                handle.unbind();
+            }
+        }
+    }
+
+    /**
+     * @return the number of times the handles have been invalidated
+     */
+    long version() {
+        return version.get();
+    }
+
+    /**
+     * @param section the section
+     * @param key the key
+     * @param type the type that the value is converted to
+     * @return the value converted to the type, {@link #MISSING} if the key does not exist
+     */
+    abstract Object resolve(String section, String key, Class<?> type);
+
+    /**
+     * called for every read of a handle.
+     * @param section the section
+     * @param key the key
+     * @param found true if the key exists
+     */
+    void read(final String section, final String key, final boolean found) {
+
+    }
+}
@@ -0,0 +1,229 @@
+package com.github.vincentrussell.ini;
+
+/**
+ * A value read from an ini file that looks like a number.  The text is kept as it is and only converted to a
+ * {@link Number} the first time it is read; the last conversion to a requested type is cached as well.  The caches
+ * are not synchronized: threads that read the value at the same time may both convert it, but always see a complete
+ * result.
+ *
+ * The number is also kept unboxed in a primitive slot, filled when the value is first converted, so that
+ * {@link Ini#getInt(String, String, int)} and the other primitive accessors read it without boxing.
+ */
+final class LazyValue {
+
+    private static final byte UNCONVERTED = 0;
+    private static final byte INTEGRAL = 1;
+    private static final byte DECIMAL = 2;
+    private static final byte NOT_A_NUMBER = 3;
+
+    private final String raw;
+    private Object normalized;
+    private Conversion conversion;
+    private long bits;
+    private volatile byte kind;
+
+    LazyValue(final String raw) {
+        this.raw = raw;
+    }
+
+    /**
+     * @return the text as it was read from the file.
+     */
+    String raw() {
+        return raw;
+    }
+
+    /**
+     * @return the value converted the same way eager loading converts it, either a {@link Number} or a
+     * {@link String}.
+     */
+    Object get() {
+        Object result = normalized;
+        if (result == null) {
+            result = Ini.normalizeValue(raw);
+            normalized = result;
+        }
+        return result;
+    }
+
+    /**
+     * fill the primitive slot if it is still empty; the slot is written before the kind so that a thread that sees the
+     * kind also sees the slot.
+     * @return the kind of number in the slot
+     */
+    private byte kind() {
+        byte result = kind;
+        if (result == UNCONVERTED) {
+            final Object value = get();
+            if (value instanceof Long) {
+                bits = (Long) value;
+                result = INTEGRAL;
+            } else if (value instanceof Double) {
+                bits = Double.doubleToRawLongBits((Double) value);
+                result = DECIMAL;
+            } else {
+                result = NOT_A_NUMBER;
+            }
+            kind = result;
+        }
+        return result;
+    }
+
+    /**
+     * @param type the desired type
+     * @param converterRegistry the registry to convert with
+     * @param <T> the generic for the type
+     * @return the value converted to the desired type.
+     */
+    @SuppressWarnings("unchecked")
+    <T> T get(final Class<T> type, final ConverterRegistry converterRegistry) {
+        final Object value = get();
+        if (type.isInstance(value)) {
+            return (T) value;
+        }
+        final ValueConverter<T> converter = converterRegistry.getConverter(type);
+        final Conversion cached = conversion;
+        if (cached != null && cached.type == type && cached.converter == converter) {
+            return (T) cached.value;
+        }
+        final T result = converter.convert(value);
+        conversion = new Conversion(type, converter, result);
+        return result;
+    }
+
+    /**
+     * unwrap a value stored in a section map.
+     * @param value the stored value
+     * @return the converted value if it is a {@link LazyValue}, the text so far if it is an {@link UnresolvedValue},
+     * the value itself otherwise
+     */
+    static Object resolve(final Object value) {
+        if (value instanceof LazyValue) {
+            return ((LazyValue) value).get();
+        }
+        return value instanceof UnresolvedValue ? value.toString() : value;
+    }
+
+    /**
+     * convert a stored value to an int.  Numbers are narrowed like {@link Number#intValue()}; other values are
+     * converted with the registry.
+     * @param value the stored value, not null
+     * @param converterRegistry the registry to convert values that are not numbers with
+     * @return the value as an int
+     * @throws NumberFormatException if the registry converts the value to something that is not a number
+     */
+    static int intValue(final Object value, final ConverterRegistry converterRegistry) {
+        if (value instanceof LazyValue) {
+            final LazyValue lazyValue = (LazyValue) value;
+            final byte kind = lazyValue.kind();
+            if (kind == INTEGRAL) {
+                return (int) lazyValue.bits;
+            } else if (kind == DECIMAL) {
+                return (int) Double.longBitsToDouble(lazyValue.bits);
+            }
+        } else if (value instanceof Number) {
+            return ((Number) value).intValue();
+        }
+        return number(value, converterRegistry, int.class).intValue();
+    }
+
+    /**
+     * convert a stored value to a long.  Numbers are narrowed like {@link Number#longValue()}; other values are
+     * converted with the registry.
+     * @param value the stored value, not null
+     * @param converterRegistry the registry to convert values that are not numbers with
+     * @return the value as a long
+     * @throws NumberFormatException if the registry converts the value to something that is not a number
+     */
+    static long longValue(final Object value, final ConverterRegistry converterRegistry) {
+        if (value instanceof LazyValue) {
+            final LazyValue lazyValue = (LazyValue) value;
+            final byte kind = lazyValue.kind();
+            if (kind == INTEGRAL) {
+                return lazyValue.bits;
+            } else if (kind == DECIMAL) {
+                return (long) Double.longBitsToDouble(lazyValue.bits);
+            }
+        } else if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        return number(value, converterRegistry, long.class).longValue();
+    }
+
+    /**
+     * convert a stored value to a double.  Numbers are converted like {@link Number#doubleValue()}; other values are
+     * converted with the registry.
+     * @param value the stored value, not null
+     * @param converterRegistry the registry to convert values that are not numbers with
+     * @return the value as a double
+     * @throws NumberFormatException if the registry converts the value to something that is not a number
+     */
+    static double doubleValue(final Object value, final ConverterRegistry converterRegistry) {
+        if (value instanceof LazyValue) {
+            final LazyValue lazyValue = (LazyValue) value;
+            final byte kind = lazyValue.kind();
+            if (kind == INTEGRAL) {
+                return lazyValue.bits;
+            } else if (kind == DECIMAL) {
+                return Double.longBitsToDouble(lazyValue.bits);
+            }
+        } else if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        return number(value, converterRegistry, double.class).doubleValue();
+    }
+
+    /**
+     * convert a stored value to a boolean.  Booleans are unboxed; other values are converted with the registry.
+     * @param value the stored value, not null
+     * @param converterRegistry the registry to convert values that are not booleans with
+     * @return the value as a boolean
+     * @throws IllegalArgumentException if the registry converts the value to something that is not a boolean
+     */
+    static boolean booleanValue(final Object value, final ConverterRegistry converterRegistry) {
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        final Object resolved = resolve(value);
+        final Object converted = convert(resolved, converterRegistry, boolean.class);
+        if (converted instanceof Boolean) {
+            return (Boolean) converted;
+        }
+        throw new IllegalArgumentException("\"" + resolved + "\" cannot be converted to a boolean");
+    }
+
+    private static Number number(final Object value, final ConverterRegistry converterRegistry, final Class<?> type) {
+        final Object resolved = resolve(value);
+        final Object converted = convert(resolved, converterRegistry, type);
+        if (converted instanceof Number) {
+            return (Number) converted;
+        }
+        throw new NumberFormatException("\"" + resolved + "\" cannot be converted to " + type.getName());
+    }
+
+    /**
+     * the converters may return the value as it is, so the result is checked before it is unboxed instead of being
+     * cast to the type by ConverterRegistry#convert.
+     */
+    private static Object convert(final Object resolved, final ConverterRegistry converterRegistry,
+                                  final Class<?> type) {
+        return resolved != null ? converterRegistry.getConverter(type).convert(resolved) : null;
+    }
+
+    @Override
+    public String toString() {
+        return String.valueOf(get());
+    }
+
+    private static final class Conversion {
+        private final Class<?> type;
+        private final ValueConverter<?> converter;
+        private final Object value;
+
+        private Conversion(final Class<?> type, final ValueConverter<?> converter, final Object value) {
+            this.type = type;
+            this.converter = converter;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.github.vincentrussell.ini;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects the {@link IniLoadStatistics} of one load while it runs.  Values are normalized on several threads by
+ * {@link ParseMode#PARALLEL}, so the counters are safe to update concurrently.
+ */
+final class LoadMeasurement {
+
+    private final long start = System.nanoTime();
+    private final LongAdder keys = new LongAdder();
+    private final LongAdder substitutions = new LongAdder();
+    private final LongAdder normalizeNanos = new LongAdder();
+    private final LongAdder substituteNanos = new LongAdder();
+    private final Set<String> sections = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    private boolean countingLines;
+    private long lines;
+    private boolean inLine;
+    private boolean afterCarriageReturn;
+
+    /**
+     * @param reader the text that is loaded
+     * @return a reader that counts the lines of the text as it is read, or the reader itself when lines are already
+     * being counted by a reader that it reads from
+     */
+    Reader countLines(final Reader reader) {
+        if (countingLines) {
+            return reader;
+        }
+        countingLines = true;
+        return new FilterReader(reader) {
+            @Override
+            public int read() throws IOException {
+                final int c = super.read();
+                if (c >= 0) {
+                    count((char) c);
+                } else {
+                    end();
+                }
+                return c;
+            }
+
+            @Override
+            public int read(final char[] buffer, final int offset, final int length) throws IOException {
+                final int read = super.read(buffer, offset, length);
+                for (int i = offset; i < offset + read; i++) {
+                    count(buffer[i]);
+                }
+                if (read < 0) {
+                    end();
+                }
+                return read;
+            }
+        };
+    }
+
+    /**
+     * count lines the way the tokenizer reads them: a line ends at a line feed, a carriage return or both, and text
+     * after the last line terminator is a line of its own.
+     */
+    private void count(final char c) {
+        if (c == '\n' && afterCarriageReturn) {
+            afterCarriageReturn = false;
+            return;
+        }
+        afterCarriageReturn = c == '\r';
+        if (c == '\n' || c == '\r') {
+            lines++;
+            inLine = false;
+        } else {
+            inLine = true;
+        }
+    }
+
+    private void end() {
+        if (inLine) {
+            lines++;
+            inLine = false;
+        }
+    }
+
+    /**
+     * count a key/value pair loaded into a section.
+     */
+    void entry(final String section) {
+        keys.increment();
+        sections.add(section);
+    }
+
+    /**
+     * count the keys of sections that were loaded without parsing them, for example from a binary cache, in place of
+     * the keys counted while parsing.
+     */
+    void loaded(final Map<String, Map<String, Object>> loadedSections) {
+        keys.reset();
+        sections.clear();
+        for (Map.Entry<String, Map<String, Object>> section : loadedSections.entrySet()) {
+            keys.add(section.getValue().size());
+            if (!section.getValue().isEmpty()) {
+                sections.add(section.getKey());
+            }
+        }
+    }
+
+    /**
+     * add the time since a value started being normalized.
+     */
+    void normalized(final long startNanos) {
+        normalizeNanos.add(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * add the time since values started being substituted.
+     */
+    void substituted(final long startNanos, final long values) {
+        substituteNanos.add(System.nanoTime() - startNanos);
+        substitutions.add(values);
+    }
+
+    /**
+     * @param bytes the number of bytes read
+     * @return the statistics of the load
+     */
+    IniLoadStatistics finish(final long bytes) {
+        return new IniLoadStatistics(bytes, lines, sections.size(), keys.sum(), substitutions.sum(),
+                System.nanoTime() - start, normalizeNanos.sum(), substituteNanos.sum());
+    }
+}
@@ -0,0 +1,106 @@
+package com.github.vincentrussell.ini;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * {@link Reader} that memory maps a file and decodes it straight into the caller's buffer.  Files larger than the
+ * window size are mapped one window at a time so files over 2GB can be read as well.
+ */
+final class MappedFileReader extends Reader {
+
+    static final long DEFAULT_WINDOW_SIZE = 64L * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final CharsetDecoder decoder;
+    private final long size;
+    private final long windowSize;
+    private long windowStart;
+    private ByteBuffer window;
+    private boolean flushed;
+
+    MappedFileReader(final FileChannel channel, final Charset charset) throws IOException {
+        this(channel, charset, DEFAULT_WINDOW_SIZE);
+    }
+
+    MappedFileReader(final FileChannel channel, final Charset charset, final long windowSize) throws IOException {
+        this.channel = channel;
+        this.decoder = newDecoder(charset);
+        this.size = channel.size();
+        this.windowSize = windowSize;
+        this.window = map(0);
+    }
+
+    /**
+     * create a decoder that replaces malformed input the same way {@link java.io.InputStreamReader} does.
+     * @param charset the charset of the file
+     * @return the decoder
+     */
+    static CharsetDecoder newDecoder(final Charset charset) {
+        return charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    @Override
+    public int read(final char[] cbuf, final int off, final int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (flushed) {
+            return -1;
+        }
+        final CharBuffer target = CharBuffer.wrap(cbuf, off, len);
+        while (target.position() == off) {
+            final boolean lastWindow = windowStart + window.limit() >= size;
+            final CoderResult result = decoder.decode(window, target, lastWindow);
+            if (result.isError()) {
+                throwException(result);
+            }
+            if (result.isOverflow()) {
+                break;
+            }
+            if (!lastWindow) {
+                window = map(windowStart + window.position());
+                continue;
+            }
+            if (!flushed) {
+                final CoderResult flushResult = decoder.flush(target);
+                if (flushResult.isOverflow()) {
+                    break;
+                }
+                flushed = true;
+            }
+            break;
+        }
+        final int read = target.position() - off;
+        return read == 0 ? -1 : read;
+    }
+
+    private ByteBuffer map(final long start) throws IOException {
+        windowStart = start;
+        return channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(windowSize, size - start));
+    }
+
+    private static void throwException(final CoderResult result) throws IOException {
+        try {
+            result.throwException();
+        } catch (CharacterCodingException e) {
+            throw new IOException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+}
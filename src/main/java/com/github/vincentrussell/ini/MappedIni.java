@@ -0,0 +1,584 @@
+package com.github.vincentrussell.ini;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A read only view of an ini that was written with {@link Ini#storeMapped(Path)}.  The file is memory mapped and
+ * every call is answered from the mapped bytes: sections and keys are found through hash tables stored in the file
+ * and a value is only decoded when it is read.  Processes that open the same file share its pages through the page
+ * cache instead of each holding a copy on the heap.
+ *
+ * <pre>
+ * ini.storeMapped(Paths.get("inventory.mini"));
+ * MappedIni mapped = new MappedIni(Paths.get("inventory.mini"));
+ * String host = mapped.getValue("FTP", "FTPHost", String.class);
+ * </pre>
+ *
+ * The file starts with the magic <code>INIM</code> and a version, and ends with the offset of the table of
+ * sections.  A table holds its entry count and slot count, then per entry the hash of its name and the offsets of
+ * the name and of the value, in the order the entries were added, then the slots of an open addressing hash table
+ * that point to the entries.  The table of sections points to one table per section; the table of a section points
+ * to tagged values.  Strings are written once, as their UTF-8 length and bytes, and referred to by offset.
+ */
+public final class MappedIni {
+
+    static final int VERSION = 1;
+
+    private static final int MAGIC = 0x494e494d;
+    private static final int ENTRY_SIZE = 20;
+    private static final int DEFAULT_REGION_SHIFT = 30;
+
+    private final int regionShift;
+    private final long regionMask;
+    private final MappedByteBuffer[] regions;
+    private final Table sections;
+    private final ConverterRegistry converterRegistry;
+
+    /**
+     * map a file written by {@link Ini#storeMapped(Path)}
+     * @param path the file
+     * @throws IOException thrown when the file cannot be mapped or is not a mapped ini of a supported version.
+     */
+    public MappedIni(final Path path) throws IOException {
+        this(path, ConverterRegistry.getDefault());
+    }
+
+    /**
+     * map a file written by {@link Ini#storeMapped(Path)}
+     * @param path the file
+     * @param converterRegistry the registry that {@link #getValue(String, String, Class)} converts with
+     * @throws IOException thrown when the file cannot be mapped or is not a mapped ini of a supported version.
+     */
+    public MappedIni(final Path path, final ConverterRegistry converterRegistry) throws IOException {
+        this(path, converterRegistry, DEFAULT_REGION_SHIFT);
+    }
+
+    /**
+     * map a file in regions of <code>1 &lt;&lt; regionShift</code> bytes; values may span regions.
+     */
+    MappedIni(final Path path, final ConverterRegistry converterRegistry, final int regionShift) throws IOException {
+        this.converterRegistry = converterRegistry;
+        this.regionShift = regionShift;
+        this.regionMask = (1L << regionShift) - 1;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size < 16) {
+                throw new IOException("not a mapped ini: " + path);
+            }
+            regions = new MappedByteBuffer[(int) ((size + regionMask) >>> regionShift)];
+            for (int i = 0; i < regions.length; i++) {
+                final long start = (long) i << regionShift;
+                regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(regionMask + 1, size - start));
+            }
+            if (getInt(0) != MAGIC) {
+                throw new IOException("not a mapped ini: " + path);
+            }
+            final int version = getInt(4);
+            if (version != VERSION) {
+                throw new IOException("unsupported mapped ini version " + version);
+            }
+            sections = new Table(getLong(size - 8));
+        }
+    }
+
+    /**
+     * return true if the section and section key exists, false otherwise
+     * @param section the desired section
+     * @param key the key in the section
+     * @return true if the section and section key exists, false otherwise
+     */
+    public boolean hasKey(final String section, final String key) {
+        final Table table = section(section);
+        return table != null && table.find(key) >= 0;
+    }
+
+    /**
+     * return a value from the nested structure as an object
+     * @param section the desired section
+     * @param key the desired key in the section
+     * @return the value from the nested structure
+     */
+    public Object getValue(final String section, final String key) {
+        return getValue(section, key, Object.class);
+    }
+
+    /**
+     * return a value from the nested structure and cast it to the specified type.
+     * @param section the desired section
+     * @param key the key in the section
+     * @param type the desired type
+     * @param <T> the generic for the type
+     * @return the value from the nested structure and cast it to the specified type.
+     */
+    public <T> T getValue(final String section, final String key, final Class<T> type) {
+        final Table table = section(section);
+        final int entry = table != null ? table.find(key) : -1;
+        final Object value = entry >= 0 ? readValue(table.valueOffset(entry)) : null;
+        if (value instanceof LazyValue) {
+            return ((LazyValue) value).get(type, converterRegistry);
+        }
+        return converterRegistry.convert(LazyValue.resolve(value), type);
+    }
+
+    /**
+     * get the sections from the ini file.
+     * @return the sections as a collection.
+     */
+    public Collection<String> getSections() {
+        return sections.names();
+    }
+
+    /**
+     * get the keys from a particular section.
+     * @param section the desired section
+     * @return the keys for a section or an empty collection.
+     */
+    public Collection<String> getKeys(final String section) {
+        final Table table = section(section);
+        return table != null ? table.names() : Collections.<String>emptyList();
+    }
+
+    /**
+     * return the section as a map.  Values are decoded from the mapping every time they are read.
+     * @param section the desired section
+     * @return null if not found
+     */
+    public Map<String, Object> getSection(final String section) {
+        final Table table = section(section);
+        return table != null ? new ResolvedSectionMap(new SectionMap(table)) : null;
+    }
+
+    private Table section(final String section) {
+        final int entry = sections.find(section);
+        return entry >= 0 ? new Table(sections.valueOffset(entry)) : null;
+    }
+
+    private Object readValue(final long offset) {
+        final int tag = getByte(offset);
+        final long payload = offset + 1;
+        switch (tag) {
+            case IniBinaryFormat.NULL:
+                return null;
+            case IniBinaryFormat.STRING:
+                return readString(getLong(payload));
+            case IniBinaryFormat.LAZY:
+                return new LazyValue(readString(getLong(payload)));
+            case IniBinaryFormat.UNRESOLVED:
+                return readString(getLong(payload));
+            case IniBinaryFormat.LONG:
+                return getLong(payload);
+            case IniBinaryFormat.DOUBLE:
+                return Double.longBitsToDouble(getLong(payload));
+            case IniBinaryFormat.INTEGER:
+                return getInt(payload);
+            case IniBinaryFormat.FLOAT:
+                return Float.intBitsToFloat(getInt(payload));
+            case IniBinaryFormat.SHORT:
+                return (short) ((getByte(payload) << 8) | (getByte(payload + 1) & 0xFF));
+            case IniBinaryFormat.BYTE:
+                return getByte(payload);
+            case IniBinaryFormat.BOOLEAN:
+                return getByte(payload) != 0;
+            case IniBinaryFormat.CHARACTER:
+                return (char) (((getByte(payload) & 0xFF) << 8) | (getByte(payload + 1) & 0xFF));
+            case IniBinaryFormat.BIG_INTEGER:
+                return new BigInteger(readString(getLong(payload)));
+            case IniBinaryFormat.BIG_DECIMAL:
+                return new BigDecimal(readString(getLong(payload)));
+            default:
+                throw new IllegalStateException("unknown value tag " + tag + " at " + offset);
+        }
+    }
+
+    private String readString(final long offset) {
+        final byte[] bytes = new byte[getInt(offset)];
+        getBytes(offset + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return true if the string at an offset has the same UTF-8 bytes
+     */
+    private boolean stringEquals(final long offset, final byte[] bytes) {
+        if (getInt(offset) != bytes.length) {
+            return false;
+        }
+        for (int i = 0; i < bytes.length; i++) {
+            if (getByte(offset + 4 + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private byte getByte(final long offset) {
+        return regions[(int) (offset >>> regionShift)].get((int) (offset & regionMask));
+    }
+
+    private int getInt(final long offset) {
+        final int position = (int) (offset & regionMask);
+        final ByteBuffer region = regions[(int) (offset >>> regionShift)];
+        if (position + 4 <= region.limit()) {
+            return region.getInt(position);
+        }
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+            value = (value << 8) | (getByte(offset + i) & 0xFF);
+        }
+        return value;
+    }
+
+    private long getLong(final long offset) {
+        final int position = (int) (offset & regionMask);
+        final ByteBuffer region = regions[(int) (offset >>> regionShift)];
+        if (position + 8 <= region.limit()) {
+            return region.getLong(position);
+        }
+        return ((long) getInt(offset) << 32) | (getInt(offset + 4) & 0xFFFFFFFFL);
+    }
+
+    private void getBytes(final long offset, final byte[] bytes) {
+        int copied = 0;
+        while (copied < bytes.length) {
+            final long position = offset + copied;
+            final ByteBuffer region = regions[(int) (position >>> regionShift)].duplicate();
+            ((Buffer) region).position((int) (position & regionMask));
+            final int length = Math.min(bytes.length - copied, region.remaining());
+            region.get(bytes, copied, length);
+            copied += length;
+        }
+    }
+
+    private static int hash(final String name) {
+        final int hash = name.hashCode();
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * write the sections of an ini in the mapped layout.
+     * @param sections the sections as they are stored
+     * @param path the file to write
+     * @throws IOException if there is an error writing the file
+     */
+    static void write(final Map<String, Map<String, Object>> sections, final Path path) throws IOException {
+        try (LayoutWriter writer = new LayoutWriter(new BufferedOutputStream(Files.newOutputStream(path), 64 * 1024))) {
+            writer.writeInt(MAGIC);
+            writer.writeInt(VERSION);
+            final long[] sectionNames = new long[sections.size()];
+            final long[] sectionTables = new long[sections.size()];
+            final int[] sectionHashes = new int[sections.size()];
+            int index = 0;
+            for (Map.Entry<String, Map<String, Object>> section : sections.entrySet()) {
+                final int size = section.getValue().size();
+                final long[] keys = new long[size];
+                final long[] values = new long[size];
+                final int[] hashes = new int[size];
+                int entry = 0;
+                for (Map.Entry<String, Object> value : section.getValue().entrySet()) {
+                    keys[entry] = writer.string(value.getKey());
+                    hashes[entry] = hash(value.getKey());
+                    values[entry] = writer.value(value.getValue());
+                    entry++;
+                }
+                sectionNames[index] = writer.string(section.getKey());
+                sectionHashes[index] = hash(section.getKey());
+                sectionTables[index] = writer.table(hashes, keys, values);
+                index++;
+            }
+            final long sectionsTable = writer.table(sectionHashes, sectionNames, sectionTables);
+            writer.writeLong(sectionsTable);
+        }
+    }
+
+    /**
+     * a hash table of names in the mapping.
+     */
+    private final class Table {
+        private final int size;
+        private final int slots;
+        private final long entries;
+
+        private Table(final long offset) {
+            this.size = getInt(offset);
+            this.slots = getInt(offset + 4);
+            this.entries = offset + 8;
+        }
+
+        /**
+         * @return the index of the entry with a name, -1 if there is none
+         */
+        private int find(final String name) {
+            if (size == 0) {
+                return -1;
+            }
+            final int hash = hash(name);
+            final long slotsStart = entries + (long) size * ENTRY_SIZE;
+            byte[] bytes = null;
+            for (int slot = hash & (slots - 1); ; slot = (slot + 1) & (slots - 1)) {
+                final int entry = getInt(slotsStart + 4L * slot) - 1;
+                if (entry < 0) {
+                    return -1;
+                }
+                if (getInt(entryOffset(entry)) == hash) {
+                    if (bytes == null) {
+                        bytes = name.getBytes(StandardCharsets.UTF_8);
+                    }
+                    if (stringEquals(getLong(entryOffset(entry) + 4), bytes)) {
+                        return entry;
+                    }
+                }
+            }
+        }
+
+        private long entryOffset(final int entry) {
+            return entries + (long) entry * ENTRY_SIZE;
+        }
+
+        private String name(final int entry) {
+            return readString(getLong(entryOffset(entry) + 4));
+        }
+
+        private long valueOffset(final int entry) {
+            return getLong(entryOffset(entry) + 12);
+        }
+
+        private List<String> names() {
+            return Collections.unmodifiableList(new AbstractList<String>() {
+                @Override
+                public String get(final int index) {
+                    if (index < 0 || index >= size) {
+                        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+                    }
+                    return name(index);
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+            });
+        }
+    }
+
+    /**
+     * the values of a section as they are stored, decoded as they are read.
+     */
+    private final class SectionMap extends AbstractMap<String, Object> {
+        private final Table table;
+
+        private SectionMap(final Table table) {
+            this.table = table;
+        }
+
+        @Override
+        public int size() {
+            return table.size;
+        }
+
+        @Override
+        public boolean containsKey(final Object key) {
+            return key instanceof String && table.find((String) key) >= 0;
+        }
+
+        @Override
+        public Object get(final Object key) {
+            final int entry = key instanceof String ? table.find((String) key) : -1;
+            return entry >= 0 ? readValue(table.valueOffset(entry)) : null;
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return new AbstractSet<Entry<String, Object>>() {
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    return new Iterator<Entry<String, Object>>() {
+                        private int entry;
+
+                        @Override
+                        public boolean hasNext() {
+                            return entry < table.size;
+                        }
+
+                        @Override
+                        public Entry<String, Object> next() {
+                            if (entry >= table.size) {
+                                throw new NoSuchElementException();
+                            }
+                            final int current = entry++;
+                            return new SimpleImmutableEntry<>(table.name(current),
+                                    readValue(table.valueOffset(current)));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return table.size;
+                }
+            };
+        }
+    }
+
+    /**
+     * writes the mapped layout and keeps track of the offsets of what it wrote.
+     */
+    private static final class LayoutWriter extends FilterOutputStream {
+        private final DataOutputStream output;
+        private final Map<String, Long> strings = new HashMap<>();
+        private long position;
+
+        private LayoutWriter(final OutputStream outputStream) {
+            super(outputStream);
+            this.output = new DataOutputStream(this);
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            out.write(b);
+            position++;
+        }
+
+        @Override
+        public void write(final byte[] bytes, final int offset, final int length) throws IOException {
+            out.write(bytes, offset, length);
+            position += length;
+        }
+
+        private void writeInt(final int value) throws IOException {
+            output.writeInt(value);
+        }
+
+        private void writeLong(final long value) throws IOException {
+            output.writeLong(value);
+        }
+
+        /**
+         * @return the offset of the string, written the first time it is used
+         */
+        private long string(final String string) throws IOException {
+            final Long existing = strings.get(string);
+            if (existing != null) {
+                return existing;
+            }
+            final long offset = position;
+            final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            output.writeInt(bytes.length);
+            output.write(bytes);
+            strings.put(string, offset);
+            return offset;
+        }
+
+        /**
+         * @return the offset of the tagged value
+         */
+        private long value(final Object value) throws IOException {
+            final long text = isFixedSize(value) ? -1
+                    : string(value instanceof LazyValue ? ((LazyValue) value).raw() : value.toString());
+            final long offset = position;
+            if (value == null) {
+                output.writeByte(IniBinaryFormat.NULL);
+            } else if (value instanceof LazyValue) {
+                output.writeByte(IniBinaryFormat.LAZY);
+                output.writeLong(text);
+            } else if (value instanceof UnresolvedValue) {
+                output.writeByte(IniBinaryFormat.UNRESOLVED);
+                output.writeLong(text);
+            } else if (value instanceof Long) {
+                output.writeByte(IniBinaryFormat.LONG);
+                output.writeLong((Long) value);
+            } else if (value instanceof Double) {
+                output.writeByte(IniBinaryFormat.DOUBLE);
+                output.writeDouble((Double) value);
+            } else if (value instanceof Integer) {
+                output.writeByte(IniBinaryFormat.INTEGER);
+                output.writeInt((Integer) value);
+            } else if (value instanceof Float) {
+                output.writeByte(IniBinaryFormat.FLOAT);
+                output.writeFloat((Float) value);
+            } else if (value instanceof Short) {
+                output.writeByte(IniBinaryFormat.SHORT);
+                output.writeShort((Short) value);
+            } else if (value instanceof Byte) {
+                output.writeByte(IniBinaryFormat.BYTE);
+                output.writeByte((Byte) value);
+            } else if (value instanceof Boolean) {
+                output.writeByte(IniBinaryFormat.BOOLEAN);
+                output.writeBoolean((Boolean) value);
+            } else if (value instanceof Character) {
+                output.writeByte(IniBinaryFormat.CHARACTER);
+                output.writeChar((Character) value);
+            } else if (value instanceof BigInteger) {
+                output.writeByte(IniBinaryFormat.BIG_INTEGER);
+                output.writeLong(text);
+            } else if (value instanceof BigDecimal) {
+                output.writeByte(IniBinaryFormat.BIG_DECIMAL);
+                output.writeLong(text);
+            } else {
+                output.writeByte(IniBinaryFormat.STRING);
+                output.writeLong(text);
+            }
+            return offset;
+        }
+
+        private static boolean isFixedSize(final Object value) {
+            return value == null || value instanceof Long || value instanceof Double || value instanceof Integer
+                    || value instanceof Float || value instanceof Short || value instanceof Byte
+                    || value instanceof Boolean || value instanceof Character;
+        }
+
+        /**
+         * @return the offset of a hash table of names
+         */
+        private long table(final int[] hashes, final long[] names, final long[] values) throws IOException {
+            int slots = 1;
+            while (slots < hashes.length * 2) {
+                slots <<= 1;
+            }
+            final int[] table = new int[slots];
+            for (int entry = 0; entry < hashes.length; entry++) {
+                int slot = hashes[entry] & (slots - 1);
+                while (table[slot] != 0) {
+                    slot = (slot + 1) & (slots - 1);
+                }
+                table[slot] = entry + 1;
+            }
+            final long offset = position;
+            output.writeInt(hashes.length);
+            output.writeInt(slots);
+            for (int entry = 0; entry < hashes.length; entry++) {
+                output.writeInt(hashes[entry]);
+                output.writeLong(names[entry]);
+                output.writeLong(values[entry]);
+            }
+            for (int slot : table) {
+                output.writeInt(slot);
+            }
+            return offset;
+        }
+    }
+}
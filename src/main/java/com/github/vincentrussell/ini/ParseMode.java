@@ -0,0 +1,24 @@
+package com.github.vincentrussell.ini;
+
+/**
+ * The strategy that {@link Ini} uses to read ini files.
+ */
+public enum ParseMode {
+
+    /**
+     * single pass, character level scanner.  This is the default.
+     */
+    TOKENIZER,
+
+    /**
+     * the original line by line parser built on regular expressions.  Kept as a fallback.
+     */
+    REGEX,
+
+    /**
+     * reads the whole file and tokenizes it in chunks that start at section headers on the common
+     * {@link java.util.concurrent.ForkJoinPool}.  The result is the same as {@link #TOKENIZER}; meant for files of
+     * many megabytes.
+     */
+    PARALLEL
+}
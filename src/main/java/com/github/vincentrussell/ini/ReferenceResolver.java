@@ -0,0 +1,280 @@
+package com.github.vincentrussell.ini;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Resolves the {@link UnresolvedValue}s of all sections at once.  Every value is a node of a graph whose edges are
+ * its references to other unresolved values, so values are resolved after the values they refer to, each exactly
+ * once, wherever they appear in the file.  A reference <code>${name}</code> is looked up in the system properties,
+ * the environment, the section of the value and finally as <code>${section.key}</code>, trying each dot as the
+ * separator between section and key.
+ *
+ * A value that still refers to itself, because its key had no earlier definition to refer to, reads the reference
+ * as an unknown name: it falls back to its default or is left as it is, the way loading without cross section
+ * references reads it.
+ *
+ * Groups of values that do not refer to each other are resolved in parallel on the common
+ * {@link java.util.concurrent.ForkJoinPool} once there are enough of them to be worth it.  Values whose reference
+ * names depend on other references cannot be placed in the graph up front; their groups are resolved afterwards, one
+ * at a time.
+ */
+final class ReferenceResolver {
+
+    private static final int PARALLEL_THRESHOLD = 256;
+
+    private final Map<String, Map<String, Object>> sections;
+    private final List<Node> nodes = new ArrayList<>();
+    private final Map<String, Map<String, Node>> nodesBySection = new HashMap<>();
+
+    private ReferenceResolver(final Map<String, Map<String, Object>> sections) {
+        this.sections = sections;
+    }
+
+    /**
+     * resolve the unresolved values of a set of sections.
+     * @param sections the sections as they are stored
+     * @return the resolved values by section; a value stays an {@link UnresolvedValue} while it refers to a name
+     * that does not exist
+     * @throws IllegalStateException when values refer to each other in a cycle
+     */
+    static Map<String, Map<String, Object>> resolve(final Map<String, Map<String, Object>> sections) {
+        return new ReferenceResolver(sections).resolve();
+    }
+
+    private Map<String, Map<String, Object>> resolve() {
+        for (Map.Entry<String, Map<String, Object>> section : sections.entrySet()) {
+            for (Map.Entry<String, Object> entry : section.getValue().entrySet()) {
+                if (entry.getValue() instanceof UnresolvedValue) {
+                    final Node node = new Node(section.getKey(), entry.getKey(), (UnresolvedValue) entry.getValue());
+                    nodes.add(node);
+                    nodesBySection.computeIfAbsent(section.getKey(), s -> new HashMap<>()).put(entry.getKey(), node);
+                }
+            }
+        }
+        if (nodes.isEmpty()) {
+            return new LinkedHashMap<>();
+        }
+        for (Node node : nodes) {
+            final Set<String> names = new LinkedHashSet<>();
+            node.namesKnown = node.value.template().collectNames(names);
+            for (String name : names) {
+                final Node dependency = findNode(node.section, name);
+                if (dependency != null && dependency != node && node.dependencies.add(dependency)) {
+                    dependency.dependents.add(node);
+                }
+            }
+        }
+
+        final List<List<Node>> groups = groups();
+        final List<List<Node>> known = new ArrayList<>();
+        final List<List<Node>> unknown = new ArrayList<>();
+        for (List<Node> group : groups) {
+            boolean namesKnown = true;
+            for (Node node : group) {
+                namesKnown &= node.namesKnown;
+            }
+            (namesKnown ? known : unknown).add(group);
+        }
+        if (nodes.size() >= PARALLEL_THRESHOLD && known.size() > 1) {
+            known.parallelStream().forEach(this::resolveGroup);
+        } else {
+            known.forEach(this::resolveGroup);
+        }
+        unknown.forEach(this::resolveGroup);
+
+        final Map<String, Map<String, Object>> resolved = new LinkedHashMap<>();
+        for (Node node : nodes) {
+            resolved.computeIfAbsent(node.section, s -> new LinkedHashMap<>()).put(node.key,
+                    node.missing ? new UnresolvedValue(node.value.template(), node.result) : node.result);
+        }
+        return resolved;
+    }
+
+    /**
+     * @return the unresolved value that a name refers to from a section, null if it refers to a resolved value or
+     * to nothing
+     */
+    private Node findNode(final String section, final String name) {
+        if (VariableTemplate.environment(name) != null) {
+            return null;
+        }
+        final Map<String, Object> own = sections.get(section);
+        if (own.containsKey(name)) {
+            return nodesBySection.getOrDefault(section, Collections.emptyMap()).get(name);
+        }
+        for (int dot = name.indexOf('.'); dot >= 0; dot = name.indexOf('.', dot + 1)) {
+            final String otherSection = name.substring(0, dot);
+            final Map<String, Object> other = sections.get(otherSection);
+            final String key = name.substring(dot + 1);
+            if (other != null && other.containsKey(key)) {
+                return nodesBySection.getOrDefault(otherSection, Collections.emptyMap()).get(key);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * split the nodes into groups that are not connected by references.
+     */
+    private List<List<Node>> groups() {
+        final List<List<Node>> groups = new ArrayList<>();
+        final Set<Node> visited = new HashSet<>();
+        for (Node start : nodes) {
+            if (!visited.add(start)) {
+                continue;
+            }
+            final List<Node> group = new ArrayList<>();
+            final Deque<Node> stack = new ArrayDeque<>();
+            stack.push(start);
+            while (!stack.isEmpty()) {
+                final Node node = stack.pop();
+                group.add(node);
+                for (Node neighbour : node.dependencies) {
+                    if (visited.add(neighbour)) {
+                        stack.push(neighbour);
+                    }
+                }
+                for (Node neighbour : node.dependents) {
+                    if (visited.add(neighbour)) {
+                        stack.push(neighbour);
+                    }
+                }
+            }
+            groups.add(group);
+        }
+        return groups;
+    }
+
+    /**
+     * resolve a group in topological order.
+     */
+    private void resolveGroup(final List<Node> group) {
+        final Map<Node, Integer> pending = new HashMap<>();
+        final Deque<Node> ready = new ArrayDeque<>();
+        for (Node node : group) {
+            pending.put(node, node.dependencies.size());
+            if (node.dependencies.isEmpty()) {
+                ready.add(node);
+            }
+        }
+        int resolved = 0;
+        while (!ready.isEmpty()) {
+            final Node node = ready.poll();
+            resolveNode(node);
+            resolved++;
+            for (Node dependent : node.dependents) {
+                if (pending.merge(dependent, -1, Integer::sum) == 0) {
+                    ready.add(dependent);
+                }
+            }
+        }
+        if (resolved < group.size()) {
+            throw cycle(findCycle(group, pending));
+        }
+    }
+
+    private void resolveNode(final Node node) {
+        final Function<String, Object> lookup = name -> {
+            final String environment = VariableTemplate.environment(name);
+            if (environment != null) {
+                return environment;
+            }
+            final Object value = findNode(node.section, name) != node ? lookup(node.section, name) : null;
+            if (value == null) {
+                node.missing = true;
+            }
+            return value;
+        };
+        node.result = node.value.template().resolve(lookup);
+    }
+
+    private Object lookup(final String section, final String name) {
+        final Map<String, Object> own = sections.get(section);
+        if (own.containsKey(name)) {
+            return valueOf(section, name, own.get(name));
+        }
+        for (int dot = name.indexOf('.'); dot >= 0; dot = name.indexOf('.', dot + 1)) {
+            final String otherSection = name.substring(0, dot);
+            final Map<String, Object> other = sections.get(otherSection);
+            final String key = name.substring(dot + 1);
+            if (other != null && other.containsKey(key)) {
+                return valueOf(otherSection, key, other.get(key));
+            }
+        }
+        return null;
+    }
+
+    private Object valueOf(final String section, final String key, final Object value) {
+        if (value instanceof UnresolvedValue) {
+            final Node node = nodesBySection.get(section).get(key);
+            return node.result != null ? node.result : value.toString();
+        }
+        return value;
+    }
+
+    private static List<Node> findCycle(final List<Node> group, final Map<Node, Integer> pending) {
+        Node node = null;
+        for (Node candidate : group) {
+            if (pending.get(candidate) > 0) {
+                node = candidate;
+                break;
+            }
+        }
+        final List<Node> path = new ArrayList<>();
+        final Map<Node, Integer> positions = new HashMap<>();
+        while (!positions.containsKey(node)) {
+            positions.put(node, path.size());
+            path.add(node);
+            for (Node dependency : node.dependencies) {
+                if (pending.get(dependency) > 0) {
+                    node = dependency;
+                    break;
+                }
+            }
+        }
+        return path.subList(positions.get(node), path.size());
+    }
+
+    private static IllegalStateException cycle(final List<Node> cycle) {
+        final StringBuilder message = new StringBuilder("Infinite loop in property interpolation: ");
+        for (Node node : cycle) {
+            message.append(node).append("->");
+        }
+        message.append(cycle.get(0));
+        return new IllegalStateException(message.toString());
+    }
+
+    private static final class Node {
+        private final String section;
+        private final String key;
+        private final UnresolvedValue value;
+        private final Set<Node> dependencies = new LinkedHashSet<>();
+        private final Collection<Node> dependents = new ArrayList<>();
+        private boolean namesKnown;
+        private boolean missing;
+        private String result;
+
+        private Node(final String section, final String key, final UnresolvedValue value) {
+            this.section = section;
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public String toString() {
+            return section + "." + key;
+        }
+    }
+}
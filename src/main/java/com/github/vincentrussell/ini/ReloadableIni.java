@@ -0,0 +1,284 @@
+package com.github.vincentrussell.ini;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+/**
+ * Holds the latest {@link IniSnapshot} of an ini file.  {@link #reload()} parses the file into a new snapshot and
+ * publishes it with a single volatile write, so readers never see a partly loaded file.  Readers that need several
+ * values to come from the same version of the file should pin it with {@link #snapshot()}:
+ *
+ * <pre>
+ * ReloadableIni config = new ReloadableIni(Paths.get("samples/sample2.ini"));
+ * IniSnapshot snapshot = config.snapshot();
+ * String host = snapshot.getValue("FTP", "FTPHost", String.class);
+ * int port = snapshot.getValue("FTP", "FTPPort", int.class);
+ * </pre>
+ */
+public class ReloadableIni {
+
+    private final Path path;
+    private final Charset charset;
+    private final Executor executor;
+    private final Supplier<Ini> iniFactory;
+    private final Object publishLock = new Object();
+    private volatile IniSnapshot snapshot;
+    private final KeyHandles keyHandles = new KeyHandles() {
+        @Override
+        Object resolve(final String section, final String key, final Class<?> type) {
+            final IniSnapshot current = snapshot;
+            return current.hasKey(section, key) ? current.getValue(section, key, type) : MISSING;
+        }
+    };
+    private long started;
+    private long published;
+    private byte[] digest;
+
+    /**
+     * load an ini file encoded in UTF-8
+     * @param path the ini file
+     * @throws IOException thrown when there is an error processing the ini.
+     */
+    public ReloadableIni(final Path path) throws IOException {
+        this(path, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * load an ini file
+     * @param path the ini file
+     * @param charset the charset of the ini file
+     * @throws IOException thrown when there is an error processing the ini.
+     */
+    public ReloadableIni(final Path path, final Charset charset) throws IOException {
+        this(path, charset, ForkJoinPool.commonPool(), Ini::new);
+    }
+
+    /**
+     * load an ini file
+     * @param path the ini file
+     * @param charset the charset of the ini file
+     * @param executor the executor that {@link #reloadAsync()} parses the file on
+     * @param iniFactory creates the {@link Ini} that every version of the file is loaded into, for example to
+     *                   choose a {@link ParseMode} or {@link ConverterRegistry}
+     * @throws IOException thrown when there is an error processing the ini.
+     */
+    public ReloadableIni(final Path path, final Charset charset, final Executor executor,
+                         final Supplier<Ini> iniFactory) throws IOException {
+        this.path = path;
+        this.charset = charset;
+        this.executor = executor;
+        this.iniFactory = iniFactory;
+        reload();
+    }
+
+    /**
+     * @return the ini file
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * parse the file again and publish it once it has been read completely.  The current snapshot stays in place if
+     * the file cannot be read.
+     * @return the new snapshot
+     * @throws IOException thrown when there is an error processing the ini.
+     */
+    public IniSnapshot reload() throws IOException {
+        return reload(true);
+    }
+
+    /**
+     * parse the file again if its content is not the content of the current snapshot.
+     * @return the new snapshot, null if the content has not changed
+     * @throws IOException thrown when there is an error processing the ini.
+     */
+    public IniSnapshot reloadIfChanged() throws IOException {
+        return reload(false);
+    }
+
+    private IniSnapshot reload(final boolean force) throws IOException {
+        final long sequence;
+        synchronized (publishLock) {
+            sequence = ++started;
+        }
+        final byte[] content = Files.readAllBytes(path);
+        final byte[] contentDigest = digest(content);
+        if (!force) {
+            synchronized (publishLock) {
+                if (Arrays.equals(contentDigest, digest)) {
+                    return null;
+                }
+            }
+        }
+        final Ini ini = iniFactory.get();
+        ini.load(new ByteArrayInputStream(content), charset);
+        final IniSnapshot loaded = ini.snapshot();
+        synchronized (publishLock) {
+            if (sequence > published) {
+                published = sequence;
+                snapshot = loaded;
+                digest = contentDigest;
+                keyHandles.invalidate();
+            }
+        }
+        return loaded;
+    }
+
+    private static byte[] digest(final byte[] content) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(content);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * parse the file again on the executor.  When reloads overlap, a reload never replaces the snapshot of a reload
+     * that was started after it.
+     * @return a future that completes with the new snapshot, or with an {@link UncheckedIOException} if the file
+     * cannot be read
+     */
+    public CompletableFuture<IniSnapshot> reloadAsync() {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return reload();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, executor);
+    }
+
+    /**
+     * get the current snapshot.  Keep the returned snapshot to read several values from the same version of the
+     * file.
+     * @return the snapshot
+     */
+    public IniSnapshot snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * get a handle to a key that looks the key up in the current snapshot and converts its value once, and again only
+     * after a reload has published a new snapshot.
+     * @param section the section
+     * @param key the key in the section
+     * @param type the type to convert the value to
+     * @param <T> the generic for the type
+     * @return the handle
+     */
+    public <T> IniKey<T> handle(final String section, final String key, final Class<T> type) {
+        return keyHandles.handle(section, key, type);
+    }
+
+    /**
+     * return true if the section and section key exists in the current snapshot, false otherwise
+     * @param section the desired section
+     * @param key the key in the section
+     * @return true if the section and section key exists, false otherwise
+     */
+    public boolean hasKey(final String section, final String key) {
+        return snapshot.hasKey(section, key);
+    }
+
+    /**
+     * return a value from the current snapshot
+     * @param section the desired section
+     * @param key the desired key in the section
+     * @return the value
+     */
+    public Object getValue(final String section, final String key) {
+        return snapshot.getValue(section, key);
+    }
+
+    /**
+     * return a value from the current snapshot and cast it to the specified type.
+     * @param section the desired section
+     * @param key the key in the section
+     * @param type the desired type
+     * @param <T> the generic for the type
+     * @return the value cast to the specified type.
+     */
+    public <T> T getValue(final String section, final String key, final Class<T> type) {
+        return snapshot.getValue(section, key, type);
+    }
+
+    /**
+     * return a value from the current snapshot as an int without boxing it.
+     * @param section the desired section
+     * @param key the key in the section
+     * @param defaultValue the value to return if the key does not exist
+     * @return the value as an int, or the default value
+     * @see IniSnapshot#getInt(String, String, int)
+     */
+    public int getInt(final String section, final String key, final int defaultValue) {
+        return snapshot.getInt(section, key, defaultValue);
+    }
+
+    /**
+     * return a value from the current snapshot as a long without boxing it.
+     * @param section the desired section
+     * @param key the key in the section
+     * @param defaultValue the value to return if the key does not exist
+     * @return the value as a long, or the default value
+     * @see IniSnapshot#getLong(String, String, long)
+     */
+    public long getLong(final String section, final String key, final long defaultValue) {
+        return snapshot.getLong(section, key, defaultValue);
+    }
+
+    /**
+     * return a value from the current snapshot as a double without boxing it.
+     * @param section the desired section
+     * @param key the key in the section
+     * @param defaultValue the value to return if the key does not exist
+     * @return the value as a double, or the default value
+     * @see IniSnapshot#getDouble(String, String, double)
+     */
+    public double getDouble(final String section, final String key, final double defaultValue) {
+        return snapshot.getDouble(section, key, defaultValue);
+    }
+
+    /**
+     * return a value from the current snapshot as a boolean without boxing it.
+     * @param section the desired section
+     * @param key the key in the section
+     * @param defaultValue the value to return if the key does not exist
+     * @return the value as a boolean, or the default value
+     * @see IniSnapshot#getBoolean(String, String, boolean)
+     */
+    public boolean getBoolean(final String section, final String key, final boolean defaultValue) {
+        return snapshot.getBoolean(section, key, defaultValue);
+    }
+
+    /**
+     * get the sections of the current snapshot.
+     * @return the sections as a collection.
+     */
+    public Collection<String> getSections() {
+        return snapshot.getSections();
+    }
+
+    /**
+     * return a section of the current snapshot as a map.
+     * @param section the desired section
+     * @return null if not found
+     */
+    public Map<String, Object> getSection(final String section) {
+        return snapshot.getSection(section);
+    }
+}
@@ -0,0 +1,79 @@
+package com.github.vincentrussell.ini;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Unmodifiable view of a section map that converts {@link LazyValue}s as they are read.
+ */
+final class ResolvedSectionMap extends AbstractMap<String, Object> {
+
+    private final Map<String, Object> map;
+
+    ResolvedSectionMap(final Map<String, Object> map) {
+        this.map = map;
+    }
+
+    @Override
+    public int size() {
+        return map.size();
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        return map.containsKey(key);
+    }
+
+    @Override
+    public Object get(final Object key) {
+        return LazyValue.resolve(map.get(key));
+    }
+
+    @Override
+    public Set<String> keySet() {
+        return Collections.unmodifiableSet(map.keySet());
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return new AbstractSet<Entry<String, Object>>() {
+            @Override
+            public Iterator<Entry<String, Object>> iterator() {
+                final Iterator<Entry<String, Object>> iterator = map.entrySet().iterator();
+                return new Iterator<Entry<String, Object>>() {
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public Entry<String, Object> next() {
+                        final Entry<String, Object> entry = iterator.next();
+                        return new SimpleImmutableEntry<>(entry.getKey(), LazyValue.resolve(entry.getValue()));
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return map.size();
+            }
+        };
+    }
+
+    /**
+     * replace every {@link LazyValue} in a map with its converted value.
+     * @param map the map to convert in place
+     * @return the same map
+     */
+    static Map<String, Object> resolveAll(final Map<String, Object> map) {
+        if (map != null) {
+            map.replaceAll((key, value) -> LazyValue.resolve(value));
+        }
+        return map;
+    }
+}
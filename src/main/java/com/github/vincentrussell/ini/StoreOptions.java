@@ -0,0 +1,70 @@
+package com.github.vincentrussell.ini;
+
+/**
+ * Options for {@link Ini#store(java.io.Writer, String, StoreOptions)}.  The defaults write sections and keys in the
+ * order they were added, with <code>" = "</code> between keys and values, the same as
+ * {@link Ini#store(java.io.Writer, String)}.
+ */
+public class StoreOptions {
+
+    private String separator = " = ";
+    private boolean sorted;
+    private boolean skipEmptySections;
+
+    /**
+     * default constructor
+     */
+    public StoreOptions() {
+
+    }
+
+    /**
+     * set the text between keys and values, for example <code>"="</code> or <code>" = "</code>.
+     * @param separator an equals sign with optional spaces or tabs around it
+     * @throws IllegalArgumentException if the separator would not be read back as one
+     */
+    public void setSeparator(final String separator) {
+        if (!separator.matches("[ \\t]*=[ \\t]*")) {
+            throw new IllegalArgumentException("separator must be an equals sign with optional spaces or tabs "
+                    + "around it: '" + separator + "'");
+        }
+        this.separator = separator;
+    }
+
+    /**
+     * @return the text between keys and values
+     */
+    public String getSeparator() {
+        return separator;
+    }
+
+    /**
+     * write sections and the keys of every section in alphabetical order.  Defaults to false.
+     * @param sorted true to sort
+     */
+    public void setSorted(final boolean sorted) {
+        this.sorted = sorted;
+    }
+
+    /**
+     * @return true if sections and keys are written in alphabetical order
+     */
+    public boolean isSorted() {
+        return sorted;
+    }
+
+    /**
+     * leave out sections without keys.  Defaults to false.
+     * @param skipEmptySections true to leave out empty sections
+     */
+    public void setSkipEmptySections(final boolean skipEmptySections) {
+        this.skipEmptySections = skipEmptySections;
+    }
+
+    /**
+     * @return true if sections without keys are left out
+     */
+    public boolean isSkipEmptySections() {
+        return skipEmptySections;
+    }
+}
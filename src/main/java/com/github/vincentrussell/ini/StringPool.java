@@ -0,0 +1,52 @@
+package com.github.vincentrussell.ini;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * A weak canonicalizing pool of strings, shared by every {@link Ini} that deduplicates what it loads.  Equal strings
+ * interned through the pool are the same instance; a string is dropped from the pool once nothing outside the pool
+ * refers to it.  The pool is split into stripes with a lock each so that files loaded in parallel rarely wait for
+ * each other.
+ */
+final class StringPool {
+
+    /**
+     * the pool shared by every {@link Ini}.
+     */
+    static final StringPool SHARED = new StringPool();
+
+    private static final int STRIPES = 32;
+
+    private final Map<String, WeakReference<String>>[] stripes;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    StringPool() {
+        stripes = new Map[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new WeakHashMap<>();
+        }
+    }
+
+    /**
+     * @param string a string
+     * @return the instance in the pool equal to the string, or the string itself after adding it to the pool
+     */
+    String intern(final String string) {
+        if (string == null) {
+            return null;
+        }
+        final int hash = string.hashCode();
+        final Map<String, WeakReference<String>> stripe = stripes[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+        synchronized (stripe) {
+            final WeakReference<String> reference = stripe.get(string);
+            final String canonical = reference != null ? reference.get() : null;
+            if (canonical != null) {
+                return canonical;
+            }
+            stripe.put(string, new WeakReference<>(string));
+            return string;
+        }
+    }
+}
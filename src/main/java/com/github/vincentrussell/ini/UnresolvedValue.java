@@ -0,0 +1,28 @@
+package com.github.vincentrussell.ini;
+
+/**
+ * A value with references that {@link Ini#resolveReferences()} has not been able to resolve completely yet, because
+ * a referenced name does not exist.  It reads as the text resolved so far, with unknown references left as they are.
+ */
+final class UnresolvedValue {
+
+    private final VariableTemplate template;
+    private final String text;
+
+    UnresolvedValue(final VariableTemplate template, final String text) {
+        this.template = template;
+        this.text = text;
+    }
+
+    /**
+     * @return the value as it was read from the file
+     */
+    VariableTemplate template() {
+        return template;
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+}
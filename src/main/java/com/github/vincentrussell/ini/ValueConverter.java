@@ -0,0 +1,16 @@
+package com.github.vincentrussell.ini;
+
+/**
+ * Converts a value stored in an {@link Ini} to another type.
+ * @param <T> the type that values are converted to
+ */
+@FunctionalInterface
+public interface ValueConverter<T> {
+
+    /**
+     * convert a value.
+     * @param value the stored value, never null
+     * @return the converted value
+     */
+    T convert(Object value);
+}
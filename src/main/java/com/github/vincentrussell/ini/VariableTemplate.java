@@ -0,0 +1,306 @@
+package com.github.vincentrussell.ini;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * A value with <code>${name}</code> references, split once into literal text and references so that it can be
+ * resolved without scanning the text again.
+ *
+ * References follow the rules that Apache Commons Text's StringSubstitutor applies with substitution in variable
+ * names enabled: <code>$${name}</code> is written as a literal <code>${name}</code>, <code>${name:-default}</code>
+ * falls back to a default, names may contain references, unknown names are left as they are and resolved values are
+ * resolved again.  A reference that leads back to itself throws an {@link IllegalStateException} naming the chain of
+ * references instead of recursing.
+ */
+final class VariableTemplate {
+
+    private static final String PREFIX = "${";
+    private static final String DEFAULT_DELIMITER = ":-";
+
+    private final String text;
+    private final Object[] segments;
+
+    private VariableTemplate(final String text, final Object[] segments) {
+        this.text = text;
+        this.segments = segments;
+    }
+
+    /**
+     * split a value into literal text and references.
+     * @param text the value
+     * @return the template
+     */
+    static VariableTemplate compile(final String text) {
+        final List<Object> segments = new ArrayList<>();
+        final StringBuilder literal = new StringBuilder();
+        int position = 0;
+        while (position < text.length()) {
+            if (!text.startsWith(PREFIX, position)) {
+                literal.append(text.charAt(position++));
+                continue;
+            }
+            final int end = findEnd(text, position + PREFIX.length());
+            if (end < 0) {
+                literal.append(text, position, text.length());
+                break;
+            }
+            if (position > 0 && text.charAt(position - 1) == '$') {
+                // an escaped reference; the text inside the braces may still contain references
+                literal.setLength(literal.length() - 1);
+                literal.append(PREFIX);
+                position += PREFIX.length();
+                continue;
+            }
+            if (literal.length() > 0) {
+                segments.add(literal.toString());
+                literal.setLength(0);
+            }
+            segments.add(new Reference(compile(text.substring(position + PREFIX.length(), end)), text, position,
+                    end + 1, position > 0 && text.charAt(position - 1) == '}'));
+            position = end + 1;
+        }
+        if (literal.length() > 0) {
+            segments.add(literal.toString());
+        }
+        return new VariableTemplate(text, segments.toArray());
+    }
+
+    /**
+     * escape the references of a value, so that compiling the result gives back the value as literal text.  A
+     * reference is escaped by writing <code>$${name}</code>; references without a closing brace are already read as
+     * text, along with everything after them, so escaping stops at the first one.
+     * @param text the value
+     * @return the escaped value, the value itself if it has no references
+     */
+    static String escape(final String text) {
+        int prefix = text.indexOf(PREFIX);
+        if (prefix < 0) {
+            return text;
+        }
+        final StringBuilder escaped = new StringBuilder(text.length() + 8);
+        int position = 0;
+        while (prefix >= 0 && findEnd(text, prefix + PREFIX.length()) >= 0) {
+            escaped.append(text, position, prefix).append('$');
+            position = prefix;
+            prefix = text.indexOf(PREFIX, prefix + 1);
+        }
+        return escaped.append(text, position, text.length()).toString();
+    }
+
+    private static int findEnd(final String text, final int from) {
+        int nested = 0;
+        int position = from;
+        while (position < text.length()) {
+            if (text.startsWith(PREFIX, position)) {
+                nested++;
+                position += PREFIX.length();
+                continue;
+            }
+            if (text.charAt(position) == '}') {
+                if (nested == 0) {
+                    return position;
+                }
+                nested--;
+            }
+            position++;
+        }
+        return -1;
+    }
+
+    /**
+     * @return the value that the template was compiled from
+     */
+    String text() {
+        return text;
+    }
+
+    /**
+     * @return true if the value contains references
+     */
+    boolean hasReferences() {
+        for (Object segment : segments) {
+            if (segment instanceof Reference) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * resolve the references of this template.
+     * @param lookup returns the value of a name, or null if the name is unknown
+     * @return the resolved value
+     */
+    String resolve(final Function<String, Object> lookup) {
+        return resolve(new Resolution(lookup, text));
+    }
+
+    private String resolve(final Resolution resolution) {
+        if (segments.length == 1 && segments[0] instanceof String) {
+            return (String) segments[0];
+        }
+        final StringBuilder result = new StringBuilder(text.length());
+        for (Object segment : segments) {
+            if (segment instanceof String) {
+                result.append((String) segment);
+                continue;
+            }
+            final Reference reference = (Reference) segment;
+            if (reference.followsReference && result.length() > 0 && result.charAt(result.length() - 1) == '$') {
+                // the value of the previous reference ends with $, which escapes this reference
+                result.setLength(result.length() - 1);
+                result.append(PREFIX);
+                result.append(compile(text.substring(reference.start + PREFIX.length())).resolve(resolution));
+                break;
+            }
+            reference.appendTo(result, resolution);
+        }
+        return result.toString();
+    }
+
+    /**
+     * a lookup of names in the system properties, then the environment, then a section.  System properties and
+     * environment variables are read where they are stored instead of being copied for every load.
+     * @param section the section that the value belongs to
+     * @return the lookup
+     */
+    static Function<String, Object> withEnvironment(final Map<String, Object> section) {
+        return name -> {
+            final String value = environment(name);
+            return value != null ? value : section.get(name);
+        };
+    }
+
+    /**
+     * @param name the name of a system property or environment variable
+     * @return the system property, else the environment variable, null if neither exists
+     */
+    static String environment(final String name) {
+        if (name.isEmpty()) {
+            return null;
+        }
+        final String property = System.getProperty(name);
+        return property != null ? property : System.getenv(name);
+    }
+
+    /**
+     * put text in place of the references to some names, with or without a default.  References whose names
+     * contain references are left as they are.
+     * @param names the names
+     * @param replacement the text to put in place of the references
+     * @return the value with the references replaced, the value itself if it has no references to the names
+     */
+    String substitute(final Collection<String> names, final String replacement) {
+        StringBuilder result = null;
+        int copied = 0;
+        for (Object segment : segments) {
+            if (!(segment instanceof Reference)) {
+                continue;
+            }
+            final Reference reference = (Reference) segment;
+            if (reference.name.segments.length != 1 || !(reference.name.segments[0] instanceof String)) {
+                continue;
+            }
+            final String name = (String) reference.name.segments[0];
+            final int delimiter = name.indexOf(DEFAULT_DELIMITER);
+            if (names.contains(delimiter >= 0 ? name.substring(0, delimiter) : name)) {
+                if (result == null) {
+                    result = new StringBuilder(text.length() + replacement.length());
+                }
+                result.append(text, copied, reference.start).append(replacement);
+                copied = reference.end;
+            }
+        }
+        return result == null ? text : result.append(text, copied, text.length()).toString();
+    }
+
+    /**
+     * collect the names that resolving this template looks up.
+     * @param names receives the names
+     * @return false if a name is only known once other references have been resolved
+     */
+    boolean collectNames(final Collection<String> names) {
+        boolean known = true;
+        for (Object segment : segments) {
+            if (segment instanceof Reference) {
+                known &= ((Reference) segment).collectNames(names);
+            }
+        }
+        return known;
+    }
+
+    private static final class Reference {
+        private final VariableTemplate name;
+        private final String source;
+        private final int start;
+        private final int end;
+        private final boolean followsReference;
+
+        private Reference(final VariableTemplate name, final String source, final int start, final int end,
+                          final boolean followsReference) {
+            this.name = name;
+            this.source = source;
+            this.start = start;
+            this.end = end;
+            this.followsReference = followsReference;
+        }
+
+        private boolean collectNames(final Collection<String> names) {
+            final Object first = name.segments.length > 0 ? name.segments[0] : "";
+            final int delimiter = first instanceof String ? ((String) first).indexOf(DEFAULT_DELIMITER) : -1;
+            final boolean known = name.collectNames(names);
+            if (name.segments.length <= 1 && first instanceof String) {
+                names.add(delimiter >= 0 ? ((String) first).substring(0, delimiter) : (String) first);
+                return known;
+            }
+            if (delimiter >= 0) {
+                names.add(((String) first).substring(0, delimiter));
+                return known;
+            }
+            return false;
+        }
+
+        private void appendTo(final StringBuilder result, final Resolution resolution) {
+            String variableName = name.segments.length == 1 && name.segments[0] instanceof String
+                    ? (String) name.segments[0] : name.resolve(resolution.lookup);
+            String defaultValue = null;
+            final int delimiter = variableName.indexOf(DEFAULT_DELIMITER);
+            if (delimiter >= 0) {
+                defaultValue = variableName.substring(delimiter + DEFAULT_DELIMITER.length());
+                variableName = variableName.substring(0, delimiter);
+            }
+            if (resolution.chain.contains(variableName)) {
+                throw new IllegalStateException("Infinite loop in property interpolation of " + resolution.root
+                        + ": " + String.join("->", resolution.chain) + "->" + variableName);
+            }
+            final Object value = resolution.lookup.apply(variableName);
+            final String replacement = value != null ? value.toString() : defaultValue;
+            if (replacement == null) {
+                result.append(source, start, end);
+                return;
+            }
+            if (replacement.indexOf(PREFIX) < 0) {
+                result.append(replacement);
+                return;
+            }
+            resolution.chain.add(variableName);
+            result.append(compile(replacement).resolve(resolution));
+            resolution.chain.remove(resolution.chain.size() - 1);
+        }
+    }
+
+    private static final class Resolution {
+        private final Function<String, Object> lookup;
+        private final String root;
+        private final List<String> chain = new ArrayList<>();
+
+        private Resolution(final Function<String, Object> lookup, final String root) {
+            this.lookup = lookup;
+            this.root = root;
+        }
+    }
+}
@@ -1,26 +1,64 @@
 package com.github.vincentrussell.ini;
 
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.text.StringSubstitutor;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.contrib.java.lang.system.EnvironmentVariables;
 import org.junit.rules.TemporaryFolder;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class IniTest {
     @Rule
@@ -166,6 +204,236 @@ public class IniTest {
                 "\n", writer.toString());
     }
 
+    @Test
+    public void storeWithOptions() throws IOException {
+        Ini ini = new Ini();
+        ini.putValue("b", "z", 1);
+        ini.putValue("b", "a", 2);
+        ini.putValues("empty", new LinkedHashMap<>());
+        ini.putValue("a", "key", "value");
+        StoreOptions options = new StoreOptions();
+        options.setSeparator("=");
+        options.setSorted(true);
+        options.setSkipEmptySections(true);
+        StringWriter writer = new StringWriter();
+        ini.store(writer, "", options);
+        assertEquals(normalizeNewlines("[a]\n" +
+                "key=value\n" +
+                "\n" +
+                "[b]\n" +
+                "a=2\n" +
+                "z=1\n" +
+                "\n"), writer.toString());
+
+        try {
+            options.setSeparator(":");
+            fail("expected invalid separator to fail");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().startsWith("separator must be an equals sign"));
+        }
+    }
+
+    @Test
+    public void storeEscapesValues() throws IOException {
+        Ini ini = new Ini();
+        ini.putValue("section", "comment", "a #b ;c");
+        ini.putValue("section", "multiline", "first\nsecond\r\nthird");
+        ini.putValue("section", "quoted", "\"quoted\"");
+        ini.putValue("section", "padded", "  padded\t");
+        ini.putValue("section", "reference", "${user.home}");
+        ini.putValue("section", "small", 1.0E-5);
+        ini.putValue("section", "key#with;comment", "value");
+        ini.putValue("section", "backslashes", "C:\\Users\\\\x\\\"");
+        StringWriter writer = new StringWriter();
+        ini.store(writer, "");
+        Ini loaded = new Ini();
+        loaded.load(writer.toString());
+        assertEquals(asMap(ini), asMap(loaded));
+
+        for (String value : new String[] {"x\\", "x\\\n", "x\\\r\n", "C:\\temp", "a\\nb", "\\#"}) {
+            Ini unstorable = new Ini();
+            unstorable.putValue("section", "key", value);
+            try {
+                unstorable.store(new StringWriter(), "");
+                fail(value + " is read back as a different value");
+            } catch (IllegalArgumentException e) {
+                assertTrue(e.getMessage(), e.getMessage().contains(value));
+            }
+        }
+    }
+
+    @Test
+    public void storeRoundTripsRandomValues() throws IOException {
+        String[] tokens = {"a", "B", "1", "0", ".", "-", " ", "\t", "#", ";", "=", ":", "\"", "'", "\n", "\r", "$",
+                "{", "}", "${", "\\", "\\x", "|", "[", "]", "e", "n", "t"};
+        Random random = new Random(19);
+        for (int i = 0; i < 2000; i++) {
+            Ini ini = new Ini();
+            int sections = random.nextInt(4);
+            for (int section = 0; section < sections; section++) {
+                int keys = random.nextInt(6);
+                for (int key = 0; key < keys; key++) {
+                    StringBuilder value = new StringBuilder();
+                    int length = random.nextInt(12);
+                    for (int j = 0; j < length; j++) {
+                        value.append(tokens[random.nextInt(tokens.length)]);
+                    }
+                    if (!isStorable(value.toString())) {
+                        Ini unstorable = new Ini();
+                        unstorable.putValue("s", "k", Ini.normalizeValue(value.toString()));
+                        try {
+                            unstorable.store(new StringWriter(), "");
+                            fail(value + " cannot be read back");
+                        } catch (IllegalArgumentException e) {
+                            // expected
+                        }
+                        continue;
+                    }
+                    ini.putValue("s" + section, "k" + key + (random.nextBoolean() ? "#;" : ""),
+                            Ini.normalizeValue(value.toString()));
+                }
+            }
+            for (ParseMode parseMode : ParseMode.values()) {
+                StringWriter writer = new StringWriter();
+                ini.store(writer, "round trip " + i);
+                Ini loaded = new Ini();
+                loaded.setParseMode(parseMode);
+                loaded.load(writer.toString());
+                Ini reloaded = new Ini();
+                reloaded.setParseMode(parseMode);
+                reloaded.load(writer.toString());
+                StringWriter rewriter = new StringWriter();
+                loaded.store(rewriter, "round trip " + i);
+                reloaded = new Ini();
+                reloaded.load(rewriter.toString());
+                for (String section : ini.getSections()) {
+                    for (String key : ini.getKeys(section)) {
+                        assertEquals(writer.toString(), ini.getValue(section, key, String.class),
+                                loaded.getValue(section, key, String.class));
+                    }
+                }
+                assertEquals(writer.toString(), asMap(loaded), asMap(reloaded));
+            }
+        }
+    }
+
+    /**
+     * @return false for the values that no ini text reads back as: a backslash before the letter of an escape
+     * sequence, or at the end, possibly followed by a final line break
+     */
+    private static boolean isStorable(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) == '\\' && (value.substring(i + 1).matches("\\r?\\n?")
+                    || "trn0bf#=:".indexOf(value.charAt(i + 1)) >= 0)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Test
+    public void preserveFormattingKeepsCommentsAndUntouchedLines() throws IOException {
+        String contents = "# production settings\n" +
+                "[server]\n" +
+                "host = example.com   ; the host\n" +
+                "port=8080\n" +
+                "; retries\n" +
+                "retries = 3\n" +
+                "\n" +
+                "[old]\n" +
+                "a = 1\n" +
+                "\n" +
+                "[client]\n" +
+                "timeout = 30\n";
+        Ini ini = new Ini();
+        ini.setPreserveFormatting(true);
+        ini.load(contents);
+        assertEquals(8080L, ini.getValue("server", "port"));
+        StringWriter unchanged = new StringWriter();
+        ini.store(unchanged, "ignored");
+        assertEquals(contents, unchanged.toString());
+
+        ini.putValue("server", "host", "example.org");
+        ini.putValue("server", "port", 9090);
+        ini.putValue("client", "timeout", 30L);
+        ini.removeSectionKey("server", "retries");
+        ini.putValue("server", "threads", 4);
+        ini.removeSection("old");
+        ini.putValue("cache", "size", 100);
+        StringWriter writer = new StringWriter();
+        ini.store(writer, "ignored");
+        assertEquals("# production settings\n" +
+                "[server]\n" +
+                "host = example.org ; the host\n" +
+                "port=9090\n" +
+                "; retries\n" +
+                "threads = 4\n" +
+                "\n" +
+                "[client]\n" +
+                "timeout = 30\n" +
+                "\n" +
+                "[cache]\n" +
+                "size = 100\n" +
+                "\n", writer.toString());
+
+        Ini crlf = new Ini();
+        crlf.setPreserveFormatting(true);
+        crlf.load("[a]\r\nx = 1 # one\r\ny = 2");
+        crlf.putValue("a", "x", 10);
+        crlf.putValue("a", "z", 3);
+        writer = new StringWriter();
+        crlf.store(writer, null);
+        assertEquals("[a]\r\nx = 10 # one\r\ny = 2\r\nz = 3\r\n", writer.toString());
+    }
+
+    @Test
+    public void preserveFormattingRoundTripsRandomEdits() throws IOException {
+        String[] lines = {"[a]", "[b]", " [ c ] ", "[a", "key=value", "key=1", "other = 2.5", "k=continued \\",
+                "more\\", "end", "x=y ;comment", "x=y#z", "v=\\#not a comment", "# comment", "; comment", "",
+                "   ", "noequals", "q=\"quoted\"", "[d]\r", "w=1\r"};
+        String[] values = {"value", "1", "-2.5", " padded ", "a;b#c", "multi\nline", "quote\"", "x\\y"};
+        Random random = new Random(20);
+        for (int i = 0; i < 500; i++) {
+            StringBuilder builder = new StringBuilder();
+            int count = random.nextInt(40);
+            for (int j = 0; j < count; j++) {
+                builder.append(lines[random.nextInt(lines.length)]).append(random.nextInt(10) == 0 ? "\r\n" : "\n");
+            }
+            if (random.nextBoolean() && builder.length() > 0) {
+                builder.setLength(builder.length() - 1);
+            }
+            String contents = builder.toString();
+            Ini ini = new Ini();
+            ini.setPreserveFormatting(true);
+            ini.setLazyValueConversion(random.nextBoolean());
+            ini.load(contents);
+            StringWriter unchanged = new StringWriter();
+            ini.store(unchanged, null);
+            assertEquals(contents, unchanged.toString());
+
+            int edits = random.nextInt(6);
+            for (int j = 0; j < edits; j++) {
+                String section = new String[] {"a", "b", "c", "d", "e", Ini.NO_SECTION}[random.nextInt(6)];
+                String key = new String[] {"key", "other", "k", "x", "v", "new"}[random.nextInt(6)];
+                int edit = random.nextInt(4);
+                if (edit == 0) {
+                    ini.removeSectionKey(section, key);
+                } else if (edit == 1) {
+                    ini.removeSection(section);
+                } else {
+                    ini.putValue(section, key, Ini.normalizeValue(values[random.nextInt(values.length)]));
+                }
+            }
+            StringWriter writer = new StringWriter();
+            ini.store(writer, null);
+            Ini loaded = new Ini();
+            loaded.load(writer.toString());
+            Map<String, Map<String, Object>> expected = asMap(ini);
+            expected.values().removeIf(Map::isEmpty);
+            assertEquals(contents + "\n=>\n" + writer, expected, asMap(loaded));
+        }
+    }
+
     @Test
     public void sectionNotFound() throws IOException {
         Ini ini = new Ini();
@@ -426,6 +694,71 @@ public class IniTest {
         assertEquals("z", ini.getValue("Char", "characterKey"));
     }
 
+    @Test
+    public void loadAllMatchesSequentialMerge() throws IOException {
+        Random random = new Random(7);
+        List<Path> paths = new ArrayList<>();
+        Ini expected = new Ini();
+        for (int i = 0; i < 50; i++) {
+            StringBuilder builder = new StringBuilder();
+            for (int section = 0; section < 5; section++) {
+                builder.append("[s").append(random.nextInt(10)).append("]\n");
+                for (int key = 0; key < 10; key++) {
+                    builder.append("k").append(random.nextInt(20)).append("=").append(random.nextInt(1000))
+                            .append("\n");
+                }
+            }
+            File file = temporaryFolder.newFile();
+            FileUtils.writeStringToFile(file, builder.toString(), StandardCharsets.UTF_8);
+            paths.add(file.toPath());
+            Ini ini = new Ini();
+            ini.load(file.toPath());
+            expected.merge(ini);
+        }
+
+        Ini ini = new Ini();
+        ini.loadAll(paths);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        Ini concurrentIni = new ConcurrentIni();
+        try {
+            concurrentIni.loadAll(paths, executor);
+        } finally {
+            executor.shutdown();
+        }
+        for (Ini actual : Arrays.asList(ini, concurrentIni)) {
+            assertEquals(expected.getSections(), actual.getSections());
+            for (String section : expected.getSections()) {
+                assertEquals(expected.getSection(section), actual.getSection(section));
+            }
+        }
+    }
+
+    @Test
+    public void loadDirectoryInOrderOfFileNames() throws IOException {
+        File directory = temporaryFolder.newFolder();
+        FileUtils.writeStringToFile(new File(directory, "20-local.ini"),
+                "[server]\nport=9090\n", StandardCharsets.UTF_8);
+        FileUtils.writeStringToFile(new File(directory, "10-base.ini"),
+                "[server]\nhost=localhost\nport=8080\nurl=http://${server.host}:${port}\n", StandardCharsets.UTF_8);
+        FileUtils.writeStringToFile(new File(directory, "30-ignored.txt"),
+                "[server]\nport=1\n", StandardCharsets.UTF_8);
+
+        Ini ini = new Ini();
+        ini.setCrossSectionReferences(true);
+        ini.loadDirectory(directory.toPath(), "*.ini");
+        assertEquals(9090L, ini.getValue("server", "port"));
+        assertEquals("localhost", ini.getValue("server", "host"));
+        assertEquals("http://localhost:8080", ini.getValue("server", "url"));
+
+        try {
+            new Ini().loadAll(Arrays.asList(new File(directory, "10-base.ini").toPath(),
+                    new File(directory, "missing.ini").toPath()));
+            fail("expected missing file to fail");
+        } catch (NoSuchFileException e) {
+            assertTrue(e.getMessage().endsWith("missing.ini"));
+        }
+    }
+
     @Test
     public void putSection() throws IOException {
         Ini ini = new Ini();
@@ -443,4 +776,1259 @@ public class IniTest {
         assertEquals("b", ini.getValue("Char", "charKey"));
         assertEquals("z", ini.getValue("Char", "characterKey"));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void tokenizerMatchesRegexParser() throws IOException {
+        for (String sample : new String[] {"samples/sample.ini", "samples/sample2.ini", "samples/multiline.ini",
+                "samples/sampleWithQuotes.ini", "samples/startsWithExample.ini", "samples/interpolation.ini",
+                "samples/edgeCases.ini"}) {
+            Ini tokenizerIni = new Ini();
+            tokenizerIni.load(Thread.currentThread().getContextClassLoader().getResourceAsStream(sample));
+            Ini regexIni = new Ini();
+            regexIni.setParseMode(ParseMode.REGEX);
+            regexIni.load(Thread.currentThread().getContextClassLoader().getResourceAsStream(sample));
+            assertEquals(sample, asMap(regexIni), asMap(tokenizerIni));
+        }
+    }
+
+    @Test
+    public void tokenizerMatchesRegexParserWithUnicodeLineSeparators() throws IOException {
+        String contents = "[section]\nkey=a\u2028b\n#comment\u2028key2=c\nkey3=\"d\u2029\"\\\n";
+        Ini tokenizerIni = new Ini();
+        tokenizerIni.load(contents);
+        Ini regexIni = new Ini();
+        regexIni.setParseMode(ParseMode.REGEX);
+        regexIni.load(contents);
+        assertEquals(asMap(regexIni), asMap(tokenizerIni));
+    }
+
+    @Test
+    public void parallelParserMatchesTokenizer() throws IOException {
+        for (String sample : new String[] {"samples/sample.ini", "samples/sample2.ini", "samples/multiline.ini",
+                "samples/sampleWithQuotes.ini", "samples/startsWithExample.ini", "samples/interpolation.ini",
+                "samples/edgeCases.ini"}) {
+            Ini tokenizerIni = new Ini();
+            tokenizerIni.load(Thread.currentThread().getContextClassLoader().getResourceAsStream(sample));
+            Ini parallelIni = new Ini();
+            parallelIni.setParseMode(ParseMode.PARALLEL);
+            parallelIni.setParallelChunkSize(1);
+            parallelIni.load(Thread.currentThread().getContextClassLoader().getResourceAsStream(sample));
+            assertEquals(sample, asMap(tokenizerIni), asMap(parallelIni));
+            assertEquals(sample, asMap(tokenizerIni).toString(), asMap(parallelIni).toString());
+        }
+    }
+
+    @Test
+    public void parallelParserMatchesTokenizerOnRandomFiles() throws IOException {
+        String[] lines = {"[a]", "[b]", " [ c ] ", "[a", "key=value", "key=1", "other = 2.5", "k=${key}",
+                "k2=${other} and ${missing}", "k=continued \\", "more\\", "end", "x=y ;comment", "x=y#z",
+                "v=\\#not a comment", "# comment", "; comment", "", "   ", "noequals", "q=\"quoted\"",
+                "u=a\u2028b", "[d]\r", "w=1\r"};
+        Random random = new Random(16);
+        for (int i = 0; i < 500; i++) {
+            StringBuilder builder = new StringBuilder();
+            int count = random.nextInt(60);
+            for (int j = 0; j < count; j++) {
+                builder.append(lines[random.nextInt(lines.length)]).append(random.nextInt(10) == 0 ? "\r\n" : "\n");
+            }
+            String contents = builder.toString();
+            boolean lazy = random.nextBoolean();
+            Ini tokenizerIni = new Ini();
+            tokenizerIni.setLazyValueConversion(lazy);
+            tokenizerIni.load(contents);
+            Ini parallelIni = new Ini();
+            parallelIni.setLazyValueConversion(lazy);
+            parallelIni.setParseMode(ParseMode.PARALLEL);
+            parallelIni.setParallelChunkSize(1 + random.nextInt(64));
+            parallelIni.load(contents);
+            assertEquals(contents, asMap(tokenizerIni), asMap(parallelIni));
+            assertEquals(contents, asMap(tokenizerIni).toString(), asMap(parallelIni).toString());
+        }
+    }
+
+    @Test
+    public void tokenizerEdgeCases() throws IOException {
+        Ini ini = new Ini();
+        ini.load(Thread.currentThread().getContextClassLoader().getResourceAsStream("samples/edgeCases.ini"));
+        assertEquals("first section is implicit", ini.getValue("_NO_SECTION", "before"));
+        assertEquals("value", ini.getValue("spaced section", "key1"));
+        assertEquals("valu", ini.getValue("spaced section", "key2"));
+        assertEquals("value#notcomment", ini.getValue("spaced section", "key3"));
+        assertEquals("quoted \"inner\" value", ini.getValue("spaced section", "key6"));
+        assertEquals("val#ue", ini.getValue("spaced section", "key4"));
+        assertEquals("continued \n ", ini.getValue("spaced section", "key10"));
+        assertEquals("a=b=c", ini.getValue("switched", "key11"));
+        assertEquals("yes", ini.getValue("switched", "indented"));
+        assertEquals("3.5 and ${missing}", ini.getValue("switched", "key13"));
+        assertEquals("x \n y", ini.getValue("crlf", "key20"));
+        assertEquals("c", ini.getValue("switched", "key19"));
+    }
+
+    @Test
+    public void escapeDecoderMatchesPatterns() {
+        char[] alphabet = {'\\', '"', '\'', 't', 'r', 'n', '0', 'b', 'f', '#', '=', ':', ';', 'a', ' '};
+        Random random = new Random(42);
+        for (int i = 0; i < 20000; i++) {
+            StringBuilder builder = new StringBuilder();
+            int length = random.nextInt(10);
+            for (int j = 0; j < length; j++) {
+                builder.append(alphabet[random.nextInt(alphabet.length)]);
+            }
+            String string = builder.toString();
+            assertEquals(string, Ini.handleEscapedAndSpecialCharactersWithPatterns(string),
+                    Ini.handleEscapedAndSpecialCharacters(string));
+        }
+        String plain = "no escapes here";
+        assertSame(plain, Ini.handleEscapedAndSpecialCharacters(plain));
+    }
+
+    @Test
+    public void binaryRoundTrip() throws IOException {
+        for (String sample : new String[] {"samples/sample.ini", "samples/sample2.ini", "samples/multiline.ini",
+                "samples/sampleWithQuotes.ini", "samples/interpolation.ini", "samples/edgeCases.ini"}) {
+            for (boolean lazy : new boolean[] {true, false}) {
+                Ini ini = new Ini();
+                ini.setLazyValueConversion(lazy);
+                ini.load(Thread.currentThread().getContextClassLoader().getResourceAsStream(sample));
+                ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+                ini.storeBinary(outputStream);
+                Ini loaded = new Ini();
+                loaded.loadBinary(new ByteArrayInputStream(outputStream.toByteArray()));
+                assertEquals(sample, asMap(ini), asMap(loaded));
+                assertEquals(sample, asMap(ini).toString(), asMap(loaded).toString());
+            }
+        }
+
+        Ini ini = new Ini();
+        ini.putValue("types", "long", 5L);
+        ini.putValue("types", "double", 2.5);
+        ini.putValue("types", "int", 7);
+        ini.putValue("types", "boolean", true);
+        ini.putValue("types", "bigDecimal", new BigDecimal("1.10"));
+        ini.putValue("types", "string", "5");
+        ini.putValue("types", "uri", URI.create("http://localhost"));
+        ini.putValues("empty", new LinkedHashMap<>());
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ini.storeBinary(outputStream);
+        Ini loaded = new Ini();
+        loaded.loadBinary(new ByteArrayInputStream(outputStream.toByteArray()));
+        assertEquals(5L, loaded.getValue("types", "long"));
+        assertEquals(2.5, loaded.getValue("types", "double"));
+        assertEquals(7, loaded.getValue("types", "int"));
+        assertEquals(true, loaded.getValue("types", "boolean"));
+        assertEquals(new BigDecimal("1.10"), loaded.getValue("types", "bigDecimal"));
+        assertEquals("5", loaded.getValue("types", "string"));
+        assertEquals("http://localhost", loaded.getValue("types", "uri"));
+        assertEquals(Arrays.asList("types", "empty"), new ArrayList<>(loaded.getSections()));
+
+        byte[] bytes = outputStream.toByteArray();
+        bytes[4] = 99;
+        try {
+            new Ini().loadBinary(new ByteArrayInputStream(bytes));
+            fail("expected unsupported version to fail");
+        } catch (IOException e) {
+            assertEquals("unsupported binary ini version 99", e.getMessage());
+        }
+    }
+
+    @Test
+    public void binaryCacheReusedWhileFileIsUnchanged() throws IOException {
+        File file = temporaryFolder.newFile("cached.ini");
+        FileUtils.writeStringToFile(file, "[server]\nhost=localhost\nport=8080\n", StandardCharsets.UTF_8);
+        File cacheFile = new File(file.getParentFile(), "cached.ini.bin");
+
+        Ini ini = new Ini();
+        ini.setBinaryCache(true);
+        ini.load(file.toPath());
+        assertEquals(8080L, ini.getValue("server", "port"));
+        assertTrue(cacheFile.exists());
+
+        byte[] cached = FileUtils.readFileToByteArray(cacheFile);
+        assertTrue(cacheFile.setLastModified(0));
+        Ini fromCache = new Ini();
+        fromCache.setBinaryCache(true);
+        fromCache.load(file.toPath());
+        assertEquals(asMap(ini), asMap(fromCache));
+        assertEquals(0, cacheFile.lastModified());
+
+        FileUtils.writeStringToFile(file, "[server]\nhost=localhost\nport=9090\n", StandardCharsets.UTF_8);
+        Ini changed = new Ini();
+        changed.setBinaryCache(true);
+        changed.load(file.toPath());
+        assertEquals(9090L, changed.getValue("server", "port"));
+        assertFalse(Arrays.equals(cached, FileUtils.readFileToByteArray(cacheFile)));
+
+        FileUtils.writeByteArrayToFile(cacheFile, new byte[] {1, 2, 3});
+        Ini corrupt = new Ini();
+        corrupt.setBinaryCache(true);
+        corrupt.load(file.toPath());
+        assertEquals(9090L, corrupt.getValue("server", "port"));
+
+        File interpolated = temporaryFolder.newFile("interpolated.ini");
+        FileUtils.writeStringToFile(interpolated, "[server]\nhost=localhost\nurl=http://${host}\n",
+                StandardCharsets.UTF_8);
+        Ini withReferences = new Ini();
+        withReferences.setBinaryCache(true);
+        withReferences.load(interpolated.toPath());
+        assertEquals("http://localhost", withReferences.getValue("server", "url"));
+        assertFalse(new File(interpolated.getParentFile(), "interpolated.ini.bin").exists());
+    }
+
+    @Test
+    public void mappedIniMatchesIni() throws IOException {
+        for (String sample : new String[] {"samples/sample.ini", "samples/sample2.ini", "samples/multiline.ini",
+                "samples/sampleWithQuotes.ini", "samples/interpolation.ini", "samples/edgeCases.ini"}) {
+            Ini ini = new Ini();
+            ini.load(Thread.currentThread().getContextClassLoader().getResourceAsStream(sample));
+            ini.putValue("types", "double", 2.5);
+            ini.putValue("types", "boolean", true);
+            ini.putValue("types", "char", 'c');
+            ini.putValue("types", "short", (short) -3);
+            ini.putValue("types", "bigInteger", new BigInteger("123456789012345678901234567890"));
+            ini.putValues("empty", new LinkedHashMap<>());
+            File file = temporaryFolder.newFile();
+            ini.storeMapped(file.toPath());
+
+            for (MappedIni mapped : Arrays.asList(new MappedIni(file.toPath()),
+                    new MappedIni(file.toPath(), ConverterRegistry.getDefault(), 4))) {
+                assertEquals(sample, new ArrayList<>(ini.getSections()), new ArrayList<>(mapped.getSections()));
+                for (String section : ini.getSections()) {
+                    assertEquals(sample, new ArrayList<>(ini.getKeys(section)),
+                            new ArrayList<>(mapped.getKeys(section)));
+                    assertEquals(sample, ini.getSection(section), mapped.getSection(section));
+                    for (String key : ini.getKeys(section)) {
+                        assertTrue(mapped.hasKey(section, key));
+                        assertEquals(ini.getValue(section, key), mapped.getValue(section, key));
+                        assertEquals(ini.getValue(section, key, String.class),
+                                mapped.getValue(section, key, String.class));
+                    }
+                }
+                assertFalse(mapped.hasKey("types", "missing"));
+                assertFalse(mapped.hasKey("missing", "double"));
+                assertNull(mapped.getValue("missing", "double"));
+                assertNull(mapped.getSection("missing"));
+                assertTrue(mapped.getKeys("missing").isEmpty());
+                assertEquals('c', (char) mapped.getValue("types", "char", Character.class));
+                assertEquals(-3, (short) mapped.getValue("types", "short", Short.class));
+            }
+        }
+    }
+
+    @Test
+    public void loadPathMemoryMapped() throws IOException {
+        File file = temporaryFolder.newFile();
+        try (InputStream inputStream = Thread.currentThread().getContextClassLoader()
+                .getResourceAsStream("samples/sample2.ini")) {
+            FileUtils.copyInputStreamToFile(inputStream, file);
+        }
+        Ini buffered = new Ini();
+        buffered.load(file.toPath(), StandardCharsets.UTF_8);
+        Ini mapped = new Ini();
+        mapped.setMemoryMappingThreshold(0);
+        mapped.load(file.toPath(), StandardCharsets.UTF_8);
+        Ini stream = new Ini();
+        stream.load(Thread.currentThread().getContextClassLoader().getResourceAsStream("samples/sample2.ini"));
+        assertEquals(asMap(stream), asMap(buffered));
+        assertEquals(asMap(stream), asMap(mapped));
+    }
+
+    @Test
+    public void mappedFileReaderAcrossWindows() throws IOException {
+        File file = temporaryFolder.newFile();
+        String contents = "[s\u00e9ction]\nk\u00e9y=v\u00e4lue \u20ac\u20ac \ud83d\ude00\n";
+        FileUtils.writeStringToFile(file, contents, StandardCharsets.UTF_8);
+        StringWriter writer = new StringWriter();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+             MappedFileReader reader = new MappedFileReader(channel, StandardCharsets.UTF_8, 5)) {
+            IOUtils.copy(reader, writer);
+        }
+        assertEquals(contents, writer.toString());
+    }
+
+    @Test
+    public void parseWithHandler() throws IOException {
+        final List<String> events = new ArrayList<>();
+        Ini.parse(Thread.currentThread().getContextClassLoader().getResourceAsStream("samples/sample.ini"),
+                new IniHandler() {
+                    @Override
+                    public void startSection(String section) {
+                        events.add("start " + section);
+                    }
+
+                    @Override
+                    public void keyValue(String key, String value) {
+                        events.add(key + "=" + value);
+                    }
+
+                    @Override
+                    public void comment(String comment) {
+                        events.add("comment " + comment);
+                    }
+
+                    @Override
+                    public void endSection(String section) {
+                        events.add("end " + section);
+                    }
+                });
+        assertEquals(Arrays.asList("comment comment", "comment comment2", "start Numbers", "double=3.14",
+                "double2=3.14D", "float=199.33F", "integer=404", "long=922337203685775808",
+                "long2=922337203685775808L", "short=-32768", "comment comment3", "comment comment4", "end Numbers",
+                "start String", "string=Hello", "user=Henry", "userWithComment2=Henry", "userWithComment=Henry",
+                "end String", "start Boolean", "trueKey=true", "falseKey=false", "end Boolean", "start Char",
+                "charKey=a", "characterKey=b", "end Char"), events);
+    }
+
+    @Test
+    public void iniReaderMatchesLoad() throws IOException {
+        for (String sample : new String[] {"samples/sample.ini", "samples/sample2.ini", "samples/multiline.ini",
+                "samples/sampleWithQuotes.ini", "samples/interpolation.ini", "samples/edgeCases.ini"}) {
+            Ini ini = new Ini();
+            ini.load(Thread.currentThread().getContextClassLoader().getResourceAsStream(sample));
+            Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+            try (IniReader reader = new IniReader(
+                    Thread.currentThread().getContextClassLoader().getResourceAsStream(sample))) {
+                while (reader.next()) {
+                    result.computeIfAbsent(reader.currentSection(), s -> new LinkedHashMap<>())
+                            .put(reader.currentKey(), reader.value());
+                }
+            }
+            assertEquals(sample, asMap(ini), result);
+        }
+    }
+
+    @Test
+    public void iniReaderSkipSection() throws IOException {
+        try (IniReader reader = new IniReader(
+                Thread.currentThread().getContextClassLoader().getResourceAsStream("samples/sample.ini"))) {
+            assertTrue(reader.next());
+            assertEquals("Numbers", reader.currentSection());
+            assertEquals("double", reader.currentKey());
+            assertEquals("3.14", reader.rawValue());
+            assertTrue(reader.skipSection());
+            assertEquals("String", reader.currentSection());
+            assertTrue(reader.next());
+            assertEquals("string", reader.currentKey());
+            assertEquals("Hello", reader.value());
+            assertTrue(reader.skipSection());
+            assertTrue(reader.skipSection());
+            assertEquals("Char", reader.currentSection());
+            assertFalse(reader.skipSection());
+            assertFalse(reader.next());
+        }
+    }
+
+    @Test
+    public void lazyValueConversionMatchesEager() throws IOException {
+        StringBuilder contents = new StringBuilder("[values]\n");
+        String[] values = {"#FF", "0x1F", "+5", "-0", ".5", "5.", "1e5", "1.0", "09", "007", "abc", "-32768",
+                "922337203685775808L", "3.14D", "199.33F", "1,000", "true", ""};
+        for (int i = 0; i < values.length; i++) {
+            contents.append("key").append(i).append('=').append(values[i]).append('\n');
+        }
+        for (String sample : new String[] {"samples/sample.ini", "samples/sample2.ini", "samples/edgeCases.ini"}) {
+            Ini lazy = new Ini();
+            lazy.load(Thread.currentThread().getContextClassLoader().getResourceAsStream(sample));
+            Ini eager = new Ini();
+            eager.setLazyValueConversion(false);
+            eager.load(Thread.currentThread().getContextClassLoader().getResourceAsStream(sample));
+            assertEquals(sample, asMap(eager), asMap(lazy));
+        }
+        Ini lazy = new Ini();
+        lazy.load(contents.toString());
+        Ini eager = new Ini();
+        eager.setLazyValueConversion(false);
+        eager.load(contents.toString());
+        assertEquals(asMap(eager), asMap(lazy));
+        for (int i = 0; i < values.length; i++) {
+            assertEquals(values[i], eager.getValue("values", "key" + i), lazy.getValue("values", "key" + i));
+        }
+    }
+
+    @Test
+    public void lazyValueConversionIsCached() throws IOException {
+        Ini ini = new Ini();
+        ini.load(Thread.currentThread().getContextClassLoader().getResourceAsStream("samples/sample.ini"));
+        Integer first = ini.getValue("Numbers", "long", int.class);
+        assertEquals(Integer.valueOf(-858695232), first);
+        assertSame(first, ini.getValue("Numbers", "long", int.class));
+        assertSame(ini.getValue("Numbers", "double"), ini.getSection("Numbers").get("double"));
+    }
+
+    @Test
+    public void convertWithRegistry() throws IOException {
+        Ini ini = new Ini();
+        ini.load("[types]\n" +
+                "duration=PT5S\n" +
+                "millis=1500\n" +
+                "decimal=1234.5\n" +
+                "path=/tmp/file.ini\n" +
+                "uri=https://github.com/vincentrussell/java-ini-parser\n" +
+                "address=localhost:8080\n" +
+                "ipv6=[::1]:9090\n" +
+                "unit=seconds\n" +
+                "list=a, b ,c\n");
+        assertEquals(Duration.ofSeconds(5), ini.getValue("types", "duration", Duration.class));
+        assertEquals(Duration.ofMillis(1500), ini.getValue("types", "millis", Duration.class));
+        assertEquals(new BigDecimal("1234.5"), ini.getValue("types", "decimal", BigDecimal.class));
+        assertEquals(Paths.get("/tmp/file.ini"), ini.getValue("types", "path", Path.class));
+        assertEquals(URI.create("https://github.com/vincentrussell/java-ini-parser"),
+                ini.getValue("types", "uri", URI.class));
+        assertEquals(InetSocketAddress.createUnresolved("localhost", 8080),
+                ini.getValue("types", "address", InetSocketAddress.class));
+        assertEquals(InetSocketAddress.createUnresolved("::1", 9090),
+                ini.getValue("types", "ipv6", InetSocketAddress.class));
+        assertEquals(TimeUnit.SECONDS, ini.getValue("types", "unit", TimeUnit.class));
+        assertEquals(Arrays.asList("a", "b", "c"), ini.getValue("types", "list", List.class));
+    }
+
+    @Test
+    public void registerCustomConverter() throws IOException {
+        Ini ini = new Ini();
+        ini.setConverterRegistry(new ConverterRegistry()
+                .register(StringBuilder.class, value -> new StringBuilder(value.toString()).reverse()));
+        ini.load(Thread.currentThread().getContextClassLoader().getResourceAsStream("samples/sample.ini"));
+        assertEquals("olleH", ini.getValue("String", "string", StringBuilder.class).toString());
+        assertNull(ConverterRegistry.getDefault().convert(null, StringBuilder.class));
+    }
+
+    @Test
+    public void concurrentIniMatchesIni() throws IOException {
+        Ini ini = new Ini();
+        ConcurrentIni concurrentIni = new ConcurrentIni();
+        for (String sample : Arrays.asList("samples/sample.ini", "samples/sample2.ini", "samples/edgeCases.ini")) {
+            ini.load(Thread.currentThread().getContextClassLoader().getResourceAsStream(sample));
+            concurrentIni.load(Thread.currentThread().getContextClassLoader().getResourceAsStream(sample));
+        }
+        assertEquals(asMap(ini), asMap(concurrentIni));
+        assertEquals(new ArrayList<>(ini.getSections()), new ArrayList<>(concurrentIni.getSections()));
+
+        Ini other = new Ini();
+        other.putValue("merged", "key", "value");
+        other.putValue("String", "string", "replaced");
+        ini.merge(other);
+        concurrentIni.merge(other);
+        ini.merge(concurrentIni);
+        assertEquals(ini.removeSection("Numbers"), concurrentIni.removeSection("Numbers"));
+        assertEquals(ini.removeSectionKey("String", "string"), concurrentIni.removeSectionKey("String", "string"));
+        assertNull(concurrentIni.removeSectionKey("missing", "key"));
+        assertNull(concurrentIni.removeSection("missing"));
+        assertEquals(asMap(ini), asMap(concurrentIni));
+
+        StringWriter expected = new StringWriter();
+        StringWriter actual = new StringWriter();
+        ini.store(expected, "comment");
+        concurrentIni.store(actual, "comment");
+        assertEquals(expected.toString(), actual.toString());
+    }
+
+    @Test
+    public void concurrentIniReadsWhileWriting() throws Exception {
+        final ConcurrentIni ini = new ConcurrentIni();
+        final int writers = 4;
+        final int keys = 2000;
+        final ExecutorService executorService = Executors.newFixedThreadPool(writers + 2);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int writer = 0; writer < writers; writer++) {
+                final String section = "section" + (writer % 2);
+                final int offset = writer * keys;
+                futures.add(executorService.submit(() -> {
+                    for (int i = 0; i < keys; i++) {
+                        ini.putValue(section, "key" + (offset + i), offset + i);
+                        if (i % 10 == 0) {
+                            ini.removeSectionKey(section, "key" + (offset + i));
+                        }
+                    }
+                }));
+            }
+            for (int reader = 0; reader < 2; reader++) {
+                futures.add(executorService.submit(() -> {
+                    for (int i = 0; i < keys; i++) {
+                        for (String section : ini.getSections()) {
+                            Map<String, Object> values = ini.getSection(section);
+                            for (Map.Entry<String, Object> entry : values.entrySet()) {
+                                assertEquals(entry.getKey(), "key" + entry.getValue());
+                            }
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+        assertThat(ini.getSections(), containsInAnyOrder("section0", "section1"));
+        assertEquals(keys * writers - keys * writers / 10,
+                ini.getKeys("section0").size() + ini.getKeys("section1").size());
+        assertEquals(Integer.valueOf(11), ini.getValue("section0", "key11", Integer.class));
+        assertFalse(ini.hasKey("section0", "key10"));
+    }
+
+    @Test
+    public void snapshotIsFrozen() throws IOException {
+        Ini ini = new Ini();
+        ini.load(Thread.currentThread().getContextClassLoader().getResourceAsStream("samples/sample2.ini"));
+        for (int i = 0; i < 1000; i++) {
+            ini.putValue("large", "key" + i, i);
+        }
+        IniSnapshot snapshot = ini.snapshot();
+        assertEquals(asMap(ini), asMap(snapshot.toIni()));
+        assertEquals(new ArrayList<>(ini.getSections()), new ArrayList<>(snapshot.getSections()));
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(Integer.valueOf(i), snapshot.getValue("large", "key" + i, Integer.class));
+        }
+        assertNull(snapshot.getValue("large", "key1000"));
+        assertNull(snapshot.getValue("missing", "key"));
+        assertNull(snapshot.getSection("missing"));
+        assertTrue(snapshot.getKeys("missing").isEmpty());
+        assertFalse(snapshot.hasKey("large", "missing"));
+        assertEquals(ini.getSectionSortedByKey("FTP"), snapshot.getSectionSortedByKey("FTP"));
+
+        ini.putValue("large", "key0", "changed");
+        ini.removeSection("FTP");
+        assertEquals(0, snapshot.getValue("large", "key0"));
+        assertTrue(snapshot.hasKey("FTP", "FTPPort"));
+        try {
+            snapshot.getSection("large").put("key0", "changed");
+            fail("snapshot sections should be unmodifiable");
+        } catch (UnsupportedOperationException e) {
+            assertEquals(0, snapshot.getValue("large", "key0"));
+        }
+    }
+
+    @Test
+    public void reloadableIniSwapsSnapshots() throws Exception {
+        File file = temporaryFolder.newFile();
+        FileUtils.writeStringToFile(file, "[section]\nkey=1\nother=a\n", StandardCharsets.UTF_8);
+        ReloadableIni reloadableIni = new ReloadableIni(file.toPath());
+        IniSnapshot pinned = reloadableIni.snapshot();
+        assertEquals(1, reloadableIni.getValue("section", "key", int.class).intValue());
+
+        FileUtils.writeStringToFile(file, "[section]\nkey=2\n", StandardCharsets.UTF_8);
+        IniSnapshot reloaded = reloadableIni.reloadAsync().get(1, TimeUnit.MINUTES);
+        assertSame(reloaded, reloadableIni.snapshot());
+        assertEquals(2, reloadableIni.getValue("section", "key", int.class).intValue());
+        assertFalse(reloadableIni.hasKey("section", "other"));
+        assertEquals(1, pinned.getValue("section", "key", int.class).intValue());
+        assertEquals("a", pinned.getValue("section", "other"));
+
+        assertTrue(file.delete());
+        try {
+            reloadableIni.reload();
+            fail("reloading a missing file should fail");
+        } catch (IOException e) {
+            assertSame(reloaded, reloadableIni.snapshot());
+        }
+    }
+
+    @Test
+    public void watcherReloadsChangedFiles() throws Exception {
+        File file = temporaryFolder.newFile();
+        FileUtils.writeStringToFile(file, "[section]\nkey=1\nsame=a\n[removed]\nkey=1\n", StandardCharsets.UTF_8);
+        final BlockingQueue<Map<String, Set<String>>> changes = new LinkedBlockingQueue<>();
+        try (IniWatcher watcher = new IniWatcher(200, TimeUnit.MILLISECONDS)) {
+            ReloadableIni ini = watcher.watch(file.toPath());
+            watcher.addListener((reloaded, diff) -> changes.add(diff.getAffectedKeys()));
+            assertNull(ini.reloadIfChanged());
+
+            for (int i = 2; i <= 5; i++) {
+                FileUtils.writeStringToFile(file, "[section]\nkey=" + i + "\nsame=a\nadded=b\n",
+                        StandardCharsets.UTF_8);
+            }
+            awaitValue(ini, "section", "key", "5");
+            assertTrue(changes.poll(1, TimeUnit.MINUTES) != null);
+            assertEquals("a", ini.getValue("section", "same"));
+            assertEquals("b", ini.getValue("section", "added"));
+            assertFalse(ini.getSections().contains("removed"));
+
+            FileUtils.writeStringToFile(file, "[section]\nkey=5\nsame=a\nadded=b\n", StandardCharsets.UTF_8);
+            FileUtils.writeStringToFile(file, "[section]\nkey=6\nsame=a\nadded=b\n", StandardCharsets.UTF_8);
+            awaitValue(ini, "section", "key", "6");
+            assertEquals("a", ini.getValue("section", "same"));
+            assertEquals("b", ini.getValue("section", "added"));
+        }
+    }
+
+    @Test
+    public void watcherReportsFailedReloads() throws Exception {
+        File file = temporaryFolder.newFile();
+        FileUtils.writeStringToFile(file, "[section]\nkey=1\n", StandardCharsets.UTF_8);
+        final AtomicInteger loads = new AtomicInteger();
+        ReloadableIni ini = new ReloadableIni(file.toPath(), StandardCharsets.UTF_8, Runnable::run, () -> {
+            if (loads.getAndIncrement() > 0) {
+                throw new IllegalStateException("cannot load");
+            }
+            return new Ini();
+        });
+        final BlockingQueue<Exception> failures = new LinkedBlockingQueue<>();
+        final BlockingQueue<IniDiff> changes = new LinkedBlockingQueue<>();
+        final BlockingQueue<Throwable> listenerFailures = new LinkedBlockingQueue<>();
+        Thread.UncaughtExceptionHandler handler = Thread.getDefaultUncaughtExceptionHandler();
+        Thread.setDefaultUncaughtExceptionHandler((thread, e) -> listenerFailures.add(e));
+        try (IniWatcher watcher = new IniWatcher(50, TimeUnit.MILLISECONDS)) {
+            watcher.watch(ini);
+            watcher.addListener(new IniChangeListener() {
+                @Override
+                public void changed(final ReloadableIni reloaded, final IniDiff diff) {
+                    throw new IllegalStateException("changed");
+                }
+
+                @Override
+                public void reloadFailed(final Path path, final Exception e) {
+                    throw new IllegalStateException("reloadFailed");
+                }
+            });
+            watcher.addListener(new IniChangeListener() {
+                @Override
+                public void changed(final ReloadableIni reloaded, final IniDiff diff) {
+                    changes.add(diff);
+                }
+
+                @Override
+                public void reloadFailed(final Path path, final Exception e) {
+                    failures.add(e);
+                }
+            });
+            FileUtils.writeStringToFile(file, "[section]\nkey=2\n", StandardCharsets.UTF_8);
+            Exception failure = failures.poll(1, TimeUnit.MINUTES);
+            assertTrue(String.valueOf(failure), failure instanceof IllegalStateException);
+            assertEquals("cannot load", failure.getMessage());
+            assertEquals(1, ini.getInt("section", "key", 0));
+            assertEquals("reloadFailed", listenerFailures.poll(1, TimeUnit.MINUTES).getMessage());
+
+            loads.set(0);
+            FileUtils.writeStringToFile(file, "[section]\nkey=3\n", StandardCharsets.UTF_8);
+            awaitValue(ini, "section", "key", "3");
+            assertTrue(changes.poll(1, TimeUnit.MINUTES) != null);
+            Throwable listenerFailure;
+            do {
+                listenerFailure = listenerFailures.poll(1, TimeUnit.MINUTES);
+            } while (listenerFailure != null && !"changed".equals(listenerFailure.getMessage()));
+            assertEquals("changed", listenerFailure.getMessage());
+        } finally {
+            Thread.setDefaultUncaughtExceptionHandler(handler);
+        }
+    }
+
+    private static void awaitValue(ReloadableIni ini, String section, String key, String value)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(1);
+        while (!value.equals(String.valueOf(ini.getValue(section, key))) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(value, String.valueOf(ini.getValue(section, key)));
+    }
+
+    @Test
+    public void diffSectionsAndKeys() throws IOException {
+        Ini before = new Ini();
+        before.load("[same]\na=1\nb=two\n[changed]\na=1\nb=2\nc=3\n[removed]\nx=1\n");
+        Ini after = new Ini();
+        after.load("[changed]\na=1.5\nb=two\nd=4\n[same]\nb=two\na=01\n[added]\ny=1\n");
+        IniDiff diff = IniDiff.compute(before, after);
+        assertFalse(diff.isEmpty());
+        assertEquals(ImmutableSet.of("added"), diff.getAddedSections());
+        assertEquals(ImmutableSet.of("removed"), diff.getRemovedSections());
+        assertEquals(ImmutableSet.of("changed"), diff.getChangedSections());
+        assertEquals(ImmutableSet.of("d"), diff.getAddedKeys("changed"));
+        assertEquals(ImmutableSet.of("a", "b"), diff.getChangedKeys("changed"));
+        assertEquals(ImmutableSet.of("c"), diff.getRemovedKeys("changed"));
+        assertEquals(ImmutableSet.of("y"), diff.getAddedKeys("added"));
+        assertEquals(ImmutableSet.of("x"), diff.getRemovedKeys("removed"));
+        assertTrue(diff.getChangedKeys("same").isEmpty());
+        assertEquals(ImmutableMap.of("changed", ImmutableSet.of("d", "a", "b", "c"), "added", ImmutableSet.of("y"),
+                "removed", ImmutableSet.of("x")), diff.getAffectedKeys());
+        assertTrue(IniDiff.compute(after, after).isEmpty());
+    }
+
+    @Test
+    public void diffLargeSnapshots() throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int section = 0; section < 100; section++) {
+            content.append("[section").append(section).append("]\n");
+            for (int key = 0; key < 1000; key++) {
+                content.append("key").append(key).append('=').append(section * key).append('\n');
+            }
+        }
+        Ini ini = new Ini();
+        ini.load(content.toString());
+        IniSnapshot before = ini.snapshot();
+        ini.putValue("section42", "key7", "changed");
+        ini.removeSectionKey("section99", "key0");
+        IniSnapshot after = ini.snapshot();
+        for (int i = 0; i < 2; i++) {
+            IniDiff diff = IniDiff.compute(before, after);
+            assertEquals(ImmutableMap.of("section42", ImmutableSet.of("key7"), "section99", ImmutableSet.of("key0")),
+                    diff.getAffectedKeys());
+        }
+        assertTrue(IniDiff.compute(before, ini.snapshot()).getChangedSections().size() == 2);
+        assertTrue(IniDiff.compute(after, ini.snapshot()).isEmpty());
+    }
+
+    @Test
+    public void variableTemplateMatchesStringSubstitutor() {
+        final Map<String, Object> values = new LinkedHashMap<>();
+        values.put("a", "1");
+        values.put("b", "${a}2");
+        values.put("c", "$${a}");
+        values.put("d", "$");
+        values.put("e", "x${f}");
+        values.put("f", "${e}");
+        values.put("a1", "nested");
+        final String[] tokens = {"${", "{", "}", "$", "a", "b", "c", "d", "e", "1", ":-", "x"};
+        final StringSubstitutor substitutor = new StringSubstitutor(values);
+        substitutor.setEnableSubstitutionInVariables(true);
+        final Random random = new Random(42);
+        for (int i = 0; i < 20000; i++) {
+            final StringBuilder text = new StringBuilder();
+            final int length = random.nextInt(12);
+            for (int j = 0; j < length; j++) {
+                text.append(tokens[random.nextInt(tokens.length)]);
+            }
+            String expected;
+            try {
+                expected = substitutor.replace(text.toString());
+            } catch (IllegalStateException e) {
+                expected = "IllegalStateException";
+            }
+            String actual;
+            try {
+                actual = VariableTemplate.compile(text.toString()).resolve(values::get);
+            } catch (IllegalStateException e) {
+                actual = "IllegalStateException";
+            }
+            assertEquals(text.toString(), expected, actual);
+        }
+    }
+
+    @Test
+    public void interpolationDefaultsEscapesAndCycles() throws IOException {
+        System.setProperty("cycle.a", "${cycle.b}");
+        System.setProperty("cycle.b", "x${cycle.a}");
+        try {
+            Ini ini = new Ini();
+            ini.load("[section]\nname=world\ngreeting=hello ${name}\ndefault=${missing:-${name}}\n" +
+                    "escaped=$${name}\nunknown=${missing}\n");
+            assertEquals("hello world", ini.getValue("section", "greeting"));
+            assertEquals("world", ini.getValue("section", "default"));
+            assertEquals("${name}", ini.getValue("section", "escaped"));
+            assertEquals("${missing}", ini.getValue("section", "unknown"));
+            try {
+                ini.load("[section]\nkey=${cycle.a}\n");
+                fail("a cycle should be reported");
+            } catch (IllegalStateException e) {
+                assertEquals("Infinite loop in property interpolation of ${cycle.a}: cycle.a->cycle.b->cycle.a",
+                        e.getMessage());
+            }
+        } finally {
+            System.getProperties().remove("cycle.a");
+            System.getProperties().remove("cycle.b");
+        }
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void delegateMapWrapperPrefersEarlierMaps() {
+        Map<String, Object> first = new LinkedHashMap<>();
+        first.put("a", "first");
+        first.put("nullValue", null);
+        Map<String, Object> second = new LinkedHashMap<>();
+        second.put("a", "second");
+        second.put("b", "second");
+        second.put("nullValue", "second");
+        DelegateMapWrapper wrapper = new DelegateMapWrapper(first, second);
+        assertEquals("first", wrapper.get("a"));
+        assertEquals("second", wrapper.get("b"));
+        assertNull(wrapper.get("nullValue"));
+        assertTrue(wrapper.containsKey("nullValue"));
+        assertFalse(wrapper.containsKey("c"));
+        assertEquals(3, wrapper.size());
+        Map<String, Object> expected = new LinkedHashMap<>();
+        expected.put("a", "first");
+        expected.put("nullValue", null);
+        expected.put("b", "second");
+        assertEquals(expected, wrapper);
+        assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(wrapper.keySet()));
+        assertTrue(new DelegateMapWrapper(new LinkedHashMap<>()).isEmpty());
+    }
+
+    @Test
+    public void crossSectionReferences() throws IOException {
+        Ini ini = new Ini();
+        ini.setCrossSectionReferences(true);
+        ini.load("[server]\nurl=http://${host}:${ports.http}/${app.path}\nhost=localhost\n" +
+                "[ports]\nhttp=8080\n[app.path]\nx=1\n[app]\npath=${name}-${version}\nname=demo\n" +
+                "version=${missing:-1.0}\nlater=${other.key}\nescaped=$${server.host}\n");
+        assertEquals("http://localhost:8080/demo-1.0", ini.getValue("server", "url"));
+        assertEquals("${other.key}", ini.getValue("app", "later"));
+        assertEquals("${server.host}", ini.getValue("app", "escaped"));
+
+        Ini other = new Ini();
+        other.setCrossSectionReferences(true);
+        other.load("[other]\nkey=${server.host}/${app.name}\n");
+        assertEquals("${server.host}/${app.name}", other.getValue("other", "key"));
+        ini.merge(other);
+        assertEquals("localhost/demo", ini.getValue("other", "key"));
+        assertEquals("localhost/demo", ini.getValue("app", "later"));
+        assertEquals("1.0", ini.getValue("app", "version"));
+
+        Ini withoutOption = new Ini();
+        withoutOption.load("[a]\nx=${y}\ny=1\n");
+        assertEquals("${y}", withoutOption.getValue("a", "x"));
+    }
+
+    @Test
+    public void crossSectionReferenceCycles() throws IOException {
+        Ini ini = new Ini();
+        ini.setCrossSectionReferences(true);
+        try {
+            ini.load("[a]\nx=${b.y}\n[b]\ny=${c.z}\n[c]\nz=${a.x}\n");
+            fail("a cycle should be reported");
+        } catch (IllegalStateException e) {
+            assertEquals("Infinite loop in property interpolation: a.x->b.y->c.z->a.x", e.getMessage());
+        }
+        Ini concurrentIni = new ConcurrentIni();
+        concurrentIni.setCrossSectionReferences(true);
+        try {
+            concurrentIni.load("[a]\nx=${y}\ny=${x}\n");
+            fail("a cycle should be reported");
+        } catch (IllegalStateException e) {
+            assertEquals("Infinite loop in property interpolation: a.x->a.y->a.x", e.getMessage());
+        }
+    }
+
+    @Test
+    public void crossSectionSelfReferences() throws IOException {
+        List<String> contents = Arrays.asList("[s]\na=${a:-x}\n", "[s]\npath=/bin\npath=${path}:/x\n",
+                "[s]\nx=${x}\n", "[s]\na=1\na=${a:-x}${a}\n");
+        for (String content : contents) {
+            Ini sequential = new Ini();
+            sequential.load(content);
+            for (Ini ini : Arrays.asList(new Ini(), new ConcurrentIni())) {
+                ini.setCrossSectionReferences(true);
+                ini.load(content);
+                assertEquals(content, asMap(sequential), asMap(ini));
+            }
+        }
+
+        Ini ini = new Ini();
+        ini.setCrossSectionReferences(true);
+        ini.load("[s]\nroot=/usr\npath=${root}/bin\npath=${path}:${later}\nlater=/x\n[t]\npath=/bin\n"
+                + "path=${t.path}:/x\n");
+        assertEquals("/usr/bin:/x", ini.getValue("s", "path"));
+        assertEquals("/bin:/x", ini.getValue("t", "path"));
+
+        File base = temporaryFolder.newFile("base.ini");
+        File overlay = temporaryFolder.newFile("overlay.ini");
+        FileUtils.writeStringToFile(base, "[s]\nroot=/usr\npath=${root}/bin\nname=base\n", StandardCharsets.UTF_8);
+        FileUtils.writeStringToFile(overlay, "[s]\npath=${path}:/x\nname=${s.name}-overlay\nroot=/opt\n",
+                StandardCharsets.UTF_8);
+        Ini loaded = new Ini();
+        loaded.setCrossSectionReferences(true);
+        loaded.loadAll(Arrays.asList(base.toPath(), overlay.toPath()));
+        assertEquals("/usr/bin:/x", loaded.getValue("s", "path"));
+        assertEquals("base-overlay", loaded.getValue("s", "name"));
+
+        Ini merged = new Ini();
+        merged.setCrossSectionReferences(true);
+        merged.load("[s]\npath=/bin\n");
+        Ini extension = new Ini();
+        extension.setCrossSectionReferences(true);
+        extension.load("[s]\npath=${path}:/x\n");
+        assertEquals("${path}:/x", extension.getValue("s", "path"));
+        merged.merge(extension);
+        assertEquals("/bin:/x", merged.getValue("s", "path"));
+    }
+
+    @Test
+    public void crossSectionReferencesInParallel() throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int section = 0; section < 200; section++) {
+            content.append("[s").append(section).append("]\n");
+            content.append("c=${b} and ${s").append(section).append(".a}\n");
+            content.append("b=${a}${a}\n");
+            content.append("a=").append(section).append("\n");
+            content.append("d=${s").append((section + 1) % 200).append(".a}\n");
+        }
+        Ini ini = new ConcurrentIni();
+        ini.setCrossSectionReferences(true);
+        ini.load(content.toString());
+        for (int section = 0; section < 200; section++) {
+            assertEquals(section + "" + section + " and " + section, ini.getValue("s" + section, "c"));
+            assertEquals(Integer.toString((section + 1) % 200), ini.getValue("s" + section, "d"));
+        }
+    }
+
+    @Test
+    public void metricsCountLoadsAndReads() throws IOException, JMException {
+        String content = "[a]\nx = 1\ny = ${x}2\r\n\r[b]\nz = \\\n  three\nx = 4";
+        CountingIniMetrics metrics = new CountingIniMetrics();
+        for (ParseMode parseMode : ParseMode.values()) {
+            List<IniLoadStatistics> loads = new ArrayList<>();
+            Ini ini = new ConcurrentIni();
+            ini.setParseMode(parseMode);
+            ini.setMetrics(new IniMetrics() {
+                @Override
+                public void loaded(Ini loaded, IniLoadStatistics statistics) {
+                    assertSame(ini, loaded);
+                    loads.add(statistics);
+                    metrics.loaded(loaded, statistics);
+                }
+
+                @Override
+                public void valueRead(String section, String key, boolean found) {
+                    metrics.valueRead(section, key, found);
+                }
+            });
+            ini.load(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8);
+            assertEquals(1, loads.size());
+            IniLoadStatistics statistics = loads.get(0);
+            assertEquals(content.length(), statistics.getBytes());
+            assertEquals(parseMode.toString(), 8, statistics.getLines());
+            assertEquals(2, statistics.getSections());
+            assertEquals(parseMode.toString(), 4, statistics.getKeys());
+            assertEquals(1, statistics.getSubstitutions());
+            assertTrue(statistics.getTotalNanos() >= statistics.getNormalizeNanos() + statistics.getSubstituteNanos()
+                    || parseMode == ParseMode.PARALLEL);
+            assertEquals("12", ini.getValue("a", "y"));
+            assertNull(ini.getValue("b", "missing"));
+        }
+        assertEquals(ParseMode.values().length, metrics.getLoads());
+        assertEquals(ParseMode.values().length * 4L, metrics.getKeysLoaded());
+        assertEquals(ParseMode.values().length, metrics.getHits());
+        assertEquals(ImmutableMap.of("a.y", (long) ParseMode.values().length), metrics.getKeyHits());
+        assertEquals(ParseMode.values().length, metrics.getMisses());
+        assertEquals(ImmutableMap.of(), metrics.getKeyMisses());
+        assertEquals(Arrays.asList("a.x", "b.x", "b.z"), metrics.getUnreadKeys());
+        for (int i = 0; i < 1000; i++) {
+            metrics.valueRead("b", "probe" + i, false);
+        }
+        metrics.valueRead(null, "x", false);
+        metrics.valueRead("a", null, true);
+        assertEquals(ParseMode.values().length + 1001L, metrics.getMisses());
+        assertEquals(ImmutableMap.of(), metrics.getKeyMisses());
+        assertEquals(Arrays.asList("a.x", "b.x", "b.z"), metrics.getUnreadKeys());
+
+        String cached = "[a]\nx = 1\n\n[b]\nz = 2\n";
+        File file = temporaryFolder.newFile();
+        FileUtils.writeStringToFile(file, cached, StandardCharsets.UTF_8);
+        metrics.reset();
+        Ini ini = new Ini();
+        for (int load = 0; load < 2; load++) {
+            ini = new Ini();
+            ini.setBinaryCache(true);
+            ini.setMetrics(metrics);
+            ini.load(file.toPath());
+        }
+        ini.setMetrics(null);
+        assertSame(IniMetrics.NOOP, ini.getMetrics());
+        ini.getValue("a", "x");
+        assertEquals(2, metrics.getLoads());
+        assertEquals(2L * cached.length(), metrics.getBytesRead());
+        assertEquals(5, metrics.getLinesRead());
+        assertEquals(4, metrics.getKeysLoaded());
+        assertEquals(0, metrics.getHits());
+
+        ObjectName name = metrics.register("metricsCountLoadsAndReads");
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            assertEquals(2L, server.getAttribute(name, "Loads"));
+            assertEquals(2, ((String[]) server.getAttribute(name, "UnreadKeys")).length);
+            server.invoke(name, "reset", null, null);
+            assertEquals(0L, server.getAttribute(name, "Loads"));
+        } finally {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        }
+    }
+
+    @Test
+    public void metricsMeasureConcurrentLoadsApart() throws Exception {
+        StringBuilder builder = new StringBuilder();
+        for (int section = 0; section < 20; section++) {
+            builder.append("[section").append(section).append("]\n");
+            for (int key = 0; key < 49; key++) {
+                builder.append("key").append(key).append(" = ").append(section * key).append('\n');
+            }
+            builder.append("key49 = ${key1}-").append(section).append('\n');
+        }
+        final String content = builder.toString();
+        for (ParseMode parseMode : ParseMode.values()) {
+            final Queue<IniLoadStatistics> loads = new ConcurrentLinkedQueue<>();
+            final Ini ini = new ConcurrentIni();
+            ini.setParseMode(parseMode);
+            ini.setMetrics(new IniMetrics() {
+                @Override
+                public void loaded(Ini loaded, IniLoadStatistics statistics) {
+                    loads.add(statistics);
+                }
+            });
+            final int threads = 4;
+            final int loadsPerThread = 100;
+            ExecutorService executorService = Executors.newFixedThreadPool(threads);
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int thread = 0; thread < threads; thread++) {
+                    futures.add(executorService.submit(() -> {
+                        for (int i = 0; i < loadsPerThread; i++) {
+                            ini.load(content);
+                        }
+                        return null;
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get(1, TimeUnit.MINUTES);
+                }
+            } finally {
+                executorService.shutdownNow();
+            }
+            assertEquals(parseMode.toString(), threads * loadsPerThread, loads.size());
+            for (IniLoadStatistics statistics : loads) {
+                assertEquals(parseMode.toString(), content.length(), statistics.getBytes());
+                assertEquals(parseMode.toString(), 1020, statistics.getLines());
+                assertEquals(parseMode.toString(), 20, statistics.getSections());
+                assertEquals(parseMode.toString(), 1000, statistics.getKeys());
+                assertEquals(parseMode.toString(), 20, statistics.getSubstitutions());
+            }
+            assertEquals("19-19", ini.getValue("section19", "key49"));
+        }
+    }
+
+    @Test
+    public void deduplicationSharesStringsBetweenInis() throws IOException {
+        String content = "[server]\nhost = config.example.com\nport = 8080\nenabled = true\n"
+                + "url = http://${host}:${port}\n[client]\nhost = config.example.com\nretries = 3\n";
+        for (ParseMode parseMode : ParseMode.values()) {
+            Ini expected = new Ini();
+            expected.setParseMode(parseMode);
+            expected.load(content);
+            Ini first = new Ini();
+            Ini second = new ConcurrentIni();
+            for (Ini ini : Arrays.asList(first, second)) {
+                ini.setParseMode(parseMode);
+                ini.setDeduplication(true);
+                ini.load(content);
+                assertEquals(asMap(expected), asMap(ini));
+            }
+            assertSame(first.getSections().iterator().next(), second.getSections().iterator().next());
+            assertSame(first.sectionMap("server").keySet().iterator().next(),
+                    second.sectionMap("server").keySet().iterator().next());
+            assertSame(first.sectionMap("server").get("host"), second.sectionMap("client").get("host"));
+            assertSame(first.getValue("server", "enabled"), second.getValue("server", "enabled"));
+            assertEquals(CompactMap.class, first.sectionMap("server").getClass());
+        }
+
+        Ini ini = new Ini();
+        ini.setDeduplication(true);
+        ini.load(content);
+        ini.putValue("server", "timeout", 30);
+        ini.putValue("new", "key", "value");
+        assertEquals("http://config.example.com:8080", ini.removeSectionKey("server", "url"));
+        assertEquals(Arrays.asList("host", "port", "enabled", "timeout"), new ArrayList<>(ini.getKeys("server")));
+        assertEquals("value", ini.getValue("new", "key"));
+
+        Random random = new Random(23);
+        Map<String, Object> compact = new CompactMap<>();
+        Map<String, Object> linked = new LinkedHashMap<>();
+        for (int i = 0; i < 20000; i++) {
+            String key = "k" + random.nextInt(100);
+            int operation = random.nextInt(10);
+            if (operation < 6) {
+                assertEquals(linked.put(key, i), compact.put(key, i));
+            } else if (operation < 8) {
+                assertEquals(linked.remove(key), compact.remove(key));
+            } else if (operation < 9) {
+                linked.entrySet().removeIf(entry -> entry.getKey().endsWith("7"));
+                compact.entrySet().removeIf(entry -> entry.getKey().endsWith("7"));
+            } else {
+                assertEquals(linked.containsKey(key), compact.containsKey(key));
+                assertEquals(linked.get(key), compact.get(key));
+            }
+            assertEquals(linked.size(), compact.size());
+        }
+        assertEquals(new ArrayList<>(linked.entrySet()), new ArrayList<>(compact.entrySet()));
+        assertEquals(linked, compact);
+        assertEquals(compact, new CompactMap<>(linked));
+        compact.clear();
+        assertTrue(compact.isEmpty());
+        assertNull(compact.get("k1"));
+    }
+
+    @Test
+    public void primitiveAccessors() throws IOException {
+        String content = "[limits]\nrate = 250\nburst = 1500\nratio = 0.75\nhuge = 10000000000.5\nbig = 9223372036854775807\n"
+                + "negative = -3\nenabled = TRUE\ndisabled = no\nname = limiter\n";
+        for (boolean lazy : new boolean[] {true, false}) {
+            Ini ini = new Ini();
+            ini.setLazyValueConversion(lazy);
+            ini.load(content);
+            for (int read = 0; read < 2; read++) {
+                assertEquals(250, ini.getInt("limits", "rate", 0));
+                assertEquals(1500L, ini.getLong("limits", "burst", 0L));
+                assertEquals(0.75, ini.getDouble("limits", "ratio", 0), 0);
+                assertEquals(0, ini.getInt("limits", "ratio", -1));
+                assertEquals((int) 10000000000.5, ini.getInt("limits", "huge", 0));
+                assertEquals(10000000000L, ini.getLong("limits", "huge", 0));
+                assertEquals(Long.MAX_VALUE, ini.getLong("limits", "big", 0));
+                assertEquals(-1, ini.getInt("limits", "big", 0));
+                assertEquals(-3.0, ini.getDouble("limits", "negative", 0), 0);
+                assertTrue(ini.getBoolean("limits", "enabled", false));
+                assertFalse(ini.getBoolean("limits", "disabled", true));
+                assertEquals(7, ini.getInt("limits", "missing", 7));
+                assertEquals(7, ini.getLong("missing", "rate", 7));
+                assertEquals(0.5, ini.getDouble("limits", "missing", 0.5), 0);
+                assertTrue(ini.getBoolean("limits", "missing", true));
+                assertEquals(ini.getValue("limits", "rate", int.class).intValue(), ini.getInt("limits", "rate", 0));
+            }
+            try {
+                ini.getInt("limits", "name", 0);
+                fail("a value that is not a number cannot be read as an int");
+            } catch (NumberFormatException e) {
+                assertTrue(e.getMessage(), e.getMessage().contains("int"));
+            }
+            ini.putValue("limits", "flag", Boolean.TRUE);
+            assertTrue(ini.getBoolean("limits", "flag", false));
+            ConverterRegistry converterRegistry = new ConverterRegistry();
+            converterRegistry.register(int.class, value -> value.toString().equals("limiter") ? 42 : 0);
+            ini.setConverterRegistry(converterRegistry);
+            assertEquals(42, ini.getInt("limits", "name", 0));
+            assertEquals(250, ini.getInt("limits", "rate", 0));
+            IniSnapshot snapshot = ini.snapshot();
+            assertEquals(250, snapshot.getInt("limits", "rate", 0));
+            assertEquals(1500L, snapshot.getLong("limits", "burst", 0L));
+            assertEquals(0.75, snapshot.getDouble("limits", "ratio", 0), 0);
+            assertTrue(snapshot.getBoolean("limits", "enabled", false));
+            assertEquals(5, snapshot.getInt("limits", "missing", 5));
+        }
+
+        Ini ini = new Ini();
+        ini.load("[s]\nn = abc\nb = 5\n");
+        for (int read = 0; read < 2; read++) {
+            try {
+                ini.getInt("s", "n", 7);
+                fail("abc is not an int");
+            } catch (NumberFormatException e) {
+                assertTrue(e.getMessage(), e.getMessage().contains("abc"));
+            }
+            try {
+                ini.getLong("s", "n", 7L);
+                fail("abc is not a long");
+            } catch (NumberFormatException e) {
+                assertTrue(e.getMessage(), e.getMessage().contains("abc"));
+            }
+            try {
+                ini.getDouble("s", "n", 7.0);
+                fail("abc is not a double");
+            } catch (NumberFormatException e) {
+                assertTrue(e.getMessage(), e.getMessage().contains("abc"));
+            }
+            try {
+                ini.getBoolean("s", "b", false);
+                fail("5 is not a boolean");
+            } catch (IllegalArgumentException e) {
+                assertTrue(e.getMessage(), e.getMessage().contains("5") && e.getMessage().contains("boolean"));
+            }
+            try {
+                ini.snapshot().getBoolean("s", "b", false);
+                fail("5 is not a boolean");
+            } catch (IllegalArgumentException e) {
+                assertTrue(e.getMessage(), e.getMessage().contains("boolean"));
+            }
+        }
+        assertEquals(7, ini.getInt("s", "missing", 7));
+        assertFalse(ini.getBoolean("s", "missing", false));
+    }
+
+    @Test
+    public void keyHandlesFollowChanges() throws IOException, InterruptedException {
+        for (Ini ini : Arrays.asList(new Ini(), new ConcurrentIni())) {
+            ini.load("[limits]\nrate = 250\nname = limiter\n");
+            IniKey<Integer> rate = ini.handle("limits", "rate", int.class);
+            IniKey<String> missing = ini.handle("limits", "burst", String.class);
+            assertEquals(Integer.valueOf(250), rate.get());
+            assertSame(rate.get(), rate.get());
+            assertTrue(rate.exists());
+            assertNull(missing.get());
+            assertFalse(missing.exists());
+            assertEquals("10", missing.getOrDefault("10"));
+
+            ini.putValue("limits", "rate", 300);
+            ini.putValue("limits", "burst", "20");
+            assertEquals(Integer.valueOf(300), rate.get());
+            assertEquals("20", missing.getOrDefault("10"));
+            ini.putValues("limits", ImmutableMap.of("rate", 350));
+            assertEquals(Integer.valueOf(350), rate.get());
+            ini.load("[limits]\nrate = 400\n");
+            assertEquals(Integer.valueOf(400), rate.get());
+            assertEquals(400L, ini.removeSectionKey("limits", "rate"));
+            assertFalse(rate.exists());
+            assertEquals(Integer.valueOf(1), rate.getOrDefault(1));
+            ini.putValue("limits", "rate", "500");
+            ConverterRegistry converterRegistry = new ConverterRegistry();
+            converterRegistry.register(int.class, value -> Integer.parseInt(value.toString()) + 1);
+            ini.setConverterRegistry(converterRegistry);
+            assertEquals(Integer.valueOf(501), rate.get());
+            ini.removeSection("limits");
+            assertFalse(rate.exists());
+            assertFalse(missing.exists());
+            assertNull(ini.removeSectionKey("limits", "rate"));
+            assertTrue(ini.getKeys("limits").isEmpty());
+            assertTrue(ini.getSectionWithKeysThatMatchFunction("limits", entry -> true).isEmpty());
+            assertEquals("limits", rate.getSection());
+            assertEquals("rate", rate.getKey());
+            assertEquals(int.class, rate.getType());
+        }
+
+        ConcurrentIni concurrentIni = new ConcurrentIni();
+        concurrentIni.putValue("a", "counter", 0);
+        IniKey<Integer> counter = concurrentIni.handle("a", "counter", Integer.class);
+        Thread writer = new Thread(() -> {
+            for (int i = 1; i <= 10000; i++) {
+                concurrentIni.putValue("a", "counter", i);
+            }
+        });
+        writer.start();
+        int last = 0;
+        while (writer.isAlive()) {
+            int read = counter.get();
+            assertTrue(read >= last);
+            last = read;
+        }
+        writer.join();
+        assertEquals(Integer.valueOf(10000), counter.get());
+
+        CountingIniMetrics metrics = new CountingIniMetrics();
+        Ini ini = new Ini();
+        ini.setMetrics(metrics);
+        ini.load("[a]\nb = 1\n");
+        IniKey<Long> b = ini.handle("a", "b", long.class);
+        b.get();
+        b.get();
+        ini.handle("a", "c", long.class).exists();
+        assertEquals(ImmutableMap.of("a.b", 2L), metrics.getKeyHits());
+        assertEquals(1, metrics.getMisses());
+        assertEquals(ImmutableMap.of(), metrics.getKeyMisses());
+
+        File file = temporaryFolder.newFile();
+        FileUtils.writeStringToFile(file, "[a]\nb = 1\n", StandardCharsets.UTF_8);
+        ReloadableIni reloadableIni = new ReloadableIni(file.toPath());
+        IniKey<Integer> reloaded = reloadableIni.handle("a", "b", int.class);
+        assertEquals(Integer.valueOf(1), reloaded.get());
+        FileUtils.writeStringToFile(file, "[a]\nb = 2\n", StandardCharsets.UTF_8);
+        assertEquals(Integer.valueOf(1), reloaded.get());
+        reloadableIni.reload();
+        assertEquals(Integer.valueOf(2), reloaded.get());
+        FileUtils.writeStringToFile(file, "[a]\n", StandardCharsets.UTF_8);
+        reloadableIni.reload();
+        assertFalse(reloaded.exists());
+    }
+
+    private static Map<String, Map<String, Object>> asMap(Ini ini) {
+        Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+        for (String section : ini.getSections()) {
+            result.put(section, new LinkedHashMap<>(ini.getSection(section)));
+        }
+        return result;
+    }
+}